@@ -0,0 +1,133 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+// Small dependency-free stand-in for JMH: timed warmup and measurement iterations at a fixed thread count,
+// throughput in ops/s, and results that can be written as CSV or JSON for regression tracking.
+public class BenchmarkHarness {
+    public interface Op {
+        void run() throws Exception;
+    }
+
+    public record Result(String benchmark, String param, int threads, double opsPerSec, double error, int iterations) {}
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationMillis;
+    private final List<Result> results = new ArrayList<>();
+
+    public BenchmarkHarness(int warmupIterations, int measureIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    // opFactory builds each worker thread's op, so per-thread state (a vehicle, say) stays thread-confined
+    public Result run(String benchmark, String param, int threads, IntFunction<Op> opFactory) {
+        List<Op> ops = new ArrayList<>();
+        for (int t = 0; t < threads; t++) ops.add(opFactory.apply(t));
+
+        for (int i = 0; i < warmupIterations; i++) iteration(ops);
+        double[] samples = new double[measureIterations];
+        for (int i = 0; i < measureIterations; i++) samples[i] = iteration(ops);
+
+        double mean = 0;
+        for (double s : samples) mean += s;
+        mean /= samples.length;
+        double var = 0;
+        for (double s : samples) var += (s - mean) * (s - mean);
+        double error = samples.length > 1 ? Math.sqrt(var / (samples.length - 1)) : 0;
+
+        Result r = new Result(benchmark, param, threads, mean, error, samples.length);
+        results.add(r);
+        System.err.printf(Locale.ROOT, "%-28s %-14s threads=%-3d %,16.0f ops/s +- %,.0f%n", benchmark, param, threads, mean, error);
+        return r;
+    }
+
+    private double iteration(List<Op> ops) {
+        int n = ops.size();
+        long[] counts = new long[n];
+        CyclicBarrier barrier = new CyclicBarrier(n + 1);
+        Stop stop = new Stop();
+        // A failing op ends the iteration for every worker and fails the run, instead of just lowering throughput
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < n; t++) {
+            final int idx = t;
+            Thread w = new Thread(() -> {
+                Op op = ops.get(idx);
+                long c = 0;
+                try {
+                    barrier.await();
+                    while (!stop.flag) {
+                        op.run();
+                        c++;
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    stop.flag = true;
+                }
+                counts[idx] = c;
+            }, "bench-" + t);
+            workers.add(w);
+            w.start();
+        }
+        long elapsed;
+        try {
+            barrier.await();
+            long start = System.nanoTime();
+            Thread.sleep(iterationMillis);
+            stop.flag = true;
+            for (Thread w : workers) w.join();
+            elapsed = System.nanoTime() - start;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        Throwable e = failure.get();
+        if (e != null) throw new IllegalStateException("Benchmark op failed", e);
+        long total = 0;
+        for (long c : counts) total += c;
+        return total / (elapsed / 1e9);
+    }
+
+    private static final class Stop {
+        volatile boolean flag;
+    }
+
+    public List<Result> getResults() { return results; }
+
+    public void writeCsv(PrintStream out) {
+        out.println("benchmark,param,threads,ops_per_sec,error,iterations");
+        for (Result r : results) {
+            out.printf(Locale.ROOT, "%s,%s,%d,%.1f,%.1f,%d%n", r.benchmark(), r.param(), r.threads(), r.opsPerSec(), r.error(), r.iterations());
+        }
+    }
+
+    public void writeJson(PrintStream out) {
+        out.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            out.printf(Locale.ROOT, "  {\"benchmark\": \"%s\", \"param\": \"%s\", \"threads\": %d, \"opsPerSec\": %.1f, \"error\": %.1f, \"iterations\": %d}%s%n",
+                    r.benchmark(), r.param(), r.threads(), r.opsPerSec(), r.error(), r.iterations(), i + 1 < results.size() ? "," : "");
+        }
+        out.println("]");
+    }
+
+    public void write(String format, String file) throws IOException {
+        PrintStream out = file == null ? System.out : new PrintStream(Files.newOutputStream(Path.of(file)));
+        try {
+            if (format.equalsIgnoreCase("json")) writeJson(out); else writeCsv(out);
+        } finally {
+            if (file != null) out.close();
+        }
+    }
+}
\ No newline at end of file
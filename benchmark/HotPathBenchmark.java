@@ -0,0 +1,124 @@
+package benchmark;
+
+import simulator.HighwayCounter;
+import simulator.SyncStrategy;
+import vehicles.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// java benchmark.HotPathBenchmark [--threads=N] [--warmup=2] [--iterations=5] [--time=1000]
+//                                 [--runner-strategy=ATOMIC] [--format=csv|json] [--out=file]
+// Results go to stdout (or --out) in the chosen format; progress goes to stderr.
+public class HotPathBenchmark {
+    public static void main(String[] args) throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+        int warmup = 2;
+        int iterations = 5;
+        long time = 1000;
+        SyncStrategy runnerStrategy = SyncStrategy.ATOMIC;
+        String format = "csv";
+        String out = null;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            String value = kv.length > 1 ? kv[1] : "";
+            switch (kv[0]) {
+                case "--threads" -> maxThreads = Integer.parseInt(value);
+                case "--warmup" -> warmup = Integer.parseInt(value);
+                case "--iterations" -> iterations = Integer.parseInt(value);
+                case "--time" -> time = Long.parseLong(value);
+                case "--runner-strategy" -> runnerStrategy = SyncStrategy.valueOf(value.toUpperCase());
+                case "--format" -> format = value;
+                case "--out" -> out = value;
+                default -> System.err.println("Ignoring unknown option: " + arg);
+            }
+        }
+
+        BenchmarkHarness harness = new BenchmarkHarness(warmup, iterations, time);
+        benchmarkCounter(harness, maxThreads);
+        benchmarkRunnerLoop(harness, runnerStrategy);
+        benchmarkSharedVehicle(harness, maxThreads);
+        harness.write(format, out);
+    }
+
+    // HighwayCounter.increment under every strategy at 1, 2, 4 ... maxThreads threads
+    static void benchmarkCounter(BenchmarkHarness harness, int maxThreads) {
+        for (SyncStrategy strategy : SyncStrategy.values()) {
+            for (int threads : threadCounts(maxThreads)) {
+                HighwayCounter counter = new HighwayCounter();
+                counter.setStrategy(strategy);
+                harness.run("counter.increment", strategy.name(), threads, t -> counter::increment);
+            }
+        }
+    }
+
+    // The old VehicleRunner inner loop, vehicle.move(1) + counter.increment(), and the advance() loop that
+    // replaced it, for each vehicle type
+    static void benchmarkRunnerLoop(BenchmarkHarness harness, SyncStrategy strategy) throws Exception {
+        for (String type : List.of("Car", "Truck", "Bus", "Airplane", "CargoShip")) {
+            HighwayCounter counter = new HighwayCounter();
+            counter.setStrategy(strategy);
+            Vehicle v = newVehicle(type);
+            ((interfaces.FuelConsumable) v).refuel(1e12);
+            harness.run("runner.move+increment", type, 1, t -> () -> {
+                v.move(1);
+                counter.increment();
+            });
+        }
+        for (String type : List.of("Car", "Truck", "Bus", "Airplane", "CargoShip")) {
+            HighwayCounter counter = new HighwayCounter();
+            counter.setStrategy(strategy);
+            Vehicle v = newVehicle(type);
+            ((interfaces.FuelConsumable) v).refuel(1e12);
+            harness.run("runner.advance+increment", type, 1, t -> () -> {
+                if (v.advance(1, 1) == 1) counter.increment();
+            });
+        }
+    }
+
+    // Every thread moving one shared Car: the lock-free fuel ledger against the same check-and-debit under a monitor
+    static void benchmarkSharedVehicle(BenchmarkHarness harness, int maxThreads) throws Exception {
+        for (int threads : threadCounts(maxThreads)) {
+            Vehicle v = newVehicle("Car");
+            ((interfaces.FuelConsumable) v).refuel(1e12);
+            harness.run("vehicle.move.shared", "CAS", threads, t -> () -> v.move(1));
+        }
+        for (int threads : threadCounts(maxThreads)) {
+            SynchronizedLedger ledger = new SynchronizedLedger(1e12);
+            harness.run("vehicle.move.shared", "SYNCHRONIZED", threads, t -> () -> ledger.move(1, 15.0));
+        }
+    }
+
+    // Baseline: the double fields vehicles used before the fixed-point ledger, guarded by the object's monitor
+    static final class SynchronizedLedger {
+        private double fuelLevel;
+        private double mileage;
+
+        SynchronizedLedger(double fuel) { this.fuelLevel = fuel; }
+
+        synchronized void move(double distance, double efficiency) throws exceptions.InsufficientFuelException {
+            double needed = distance / efficiency;
+            if (needed > fuelLevel) throw new exceptions.InsufficientFuelException("Not enough fuel");
+            fuelLevel -= needed;
+            mileage += distance;
+        }
+    }
+
+    static Vehicle newVehicle(String type) throws Exception {
+        return switch (type) {
+            case "Car" -> new Car("BENCH-C", "BenchCar", 160, 0, 4);
+            case "Truck" -> new Truck("BENCH-T", "BenchTruck", 120, 0, 6);
+            case "Bus" -> new Bus("BENCH-B", "BenchBus", 100, 0, 6);
+            case "Airplane" -> new Airplane("BENCH-A", "BenchPlane", 850, 0, 12000);
+            case "CargoShip" -> new CargoShip("BENCH-S", "BenchShip", 40, 0, false);
+            default -> throw new IllegalArgumentException("Unknown vehicle type: " + type);
+        };
+    }
+
+    static List<Integer> threadCounts(int max) {
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < max; t *= 2) counts.add(t);
+        counts.add(Math.max(1, max));
+        return counts;
+    }
+}
\ No newline at end of file
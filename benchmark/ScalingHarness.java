@@ -0,0 +1,189 @@
+package benchmark;
+
+import fleet.FleetManager;
+import fleet.SyntheticFleetGenerator;
+import interfaces.FuelConsumable;
+import metrics.MetricsRegistry;
+import metrics.RunnerMetrics;
+import simulator.HighwayCounter;
+import simulator.SegmentedHighway;
+import simulator.SyncStrategy;
+import simulator.TickScheduler;
+import simulator.VehicleRunner;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// java benchmark.ScalingHarness [--vehicles=10000] [--seed=42] [--mix=Car:40,Truck:20,Bus:15,Airplane:10,CargoShip:15]
+//                               [--threads=1,2,4] [--strategies=SYNCHRONIZED,LOCK,ATOMIC,STRIPED] [--increments=1,10,100]
+//                               [--segments=0,8] [--duration=2000] [--tick=1] [--out=file]
+// End-to-end load run: a seeded synthetic fleet is loaded into a FleetManager and driven headless by a TickScheduler
+// of each parallelism, with a reader thread hammering the FleetManager meanwhile. One CSV row per combination.
+// --segments counts on a SegmentedHighway with that many per-segment counters instead of one HighwayCounter (0).
+public class ScalingHarness {
+    public record Row(int vehicles, int threads, int segments, SyncStrategy strategy, int increments, long durationMillis,
+                      double incrementsPerSec, double ticksPerSec, long p99TickMicros, long p99LagMicros,
+                      long lostUpdates, double fleetAddsPerSec, double fleetReadsPerSec, long heapUsedMb, long heapPeakMb) {}
+
+    // Enough for any run to stay on the road; the generated fuel levels would strand part of the fleet
+    private static final double FUEL = 1e7;
+
+    public static void main(String[] args) throws Exception {
+        int vehicles = 10_000;
+        long seed = 42;
+        String mix = null;
+        List<Integer> threads = threadCounts(Runtime.getRuntime().availableProcessors());
+        List<SyncStrategy> strategies = List.of(SyncStrategy.SYNCHRONIZED, SyncStrategy.LOCK, SyncStrategy.ATOMIC, SyncStrategy.STRIPED);
+        List<Integer> increments = List.of(1, 10, 100);
+        List<Integer> segments = List.of(0);
+        long duration = 2000;
+        long tick = 1;
+        String out = null;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            String value = kv.length > 1 ? kv[1] : "";
+            switch (kv[0]) {
+                case "--vehicles" -> vehicles = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--mix" -> mix = value;
+                case "--threads" -> threads = list(value, Integer::parseInt);
+                case "--strategies" -> strategies = list(value, s -> SyncStrategy.valueOf(s.toUpperCase()));
+                case "--increments" -> increments = list(value, Integer::parseInt);
+                case "--segments" -> segments = list(value, Integer::parseInt);
+                case "--duration" -> duration = Long.parseLong(value);
+                case "--tick" -> tick = Long.parseLong(value);
+                case "--out" -> out = value;
+                default -> System.err.println("Ignoring unknown option: " + arg);
+            }
+        }
+
+        SyntheticFleetGenerator generator = new SyntheticFleetGenerator(seed);
+        if (mix != null) generator.withMix(mix);
+        List<Row> rows = new ArrayList<>();
+        for (int t : threads) {
+            for (int seg : segments) {
+                for (SyncStrategy strategy : strategies) {
+                    for (int inc : increments) {
+                        Row r = run(generator, vehicles, t, seg, strategy, inc, duration, tick);
+                        rows.add(r);
+                        System.err.printf(Locale.ROOT, "threads=%-3d segments=%-3d %-12s inc=%-4d %,14.0f incr/s  p99 tick %,6d us  lost %,d%n",
+                                t, seg, strategy, inc, r.incrementsPerSec(), r.p99TickMicros(), r.lostUpdates());
+                    }
+                }
+            }
+        }
+        write(rows, out);
+    }
+
+    public static Row run(SyntheticFleetGenerator generator, int vehicles, int threads, int segments, SyncStrategy strategy,
+                          int increments, long durationMillis, long tickMillis) throws Exception {
+        System.gc();
+        // Every heap pool, eden and survivor included; only the old generation supports usage thresholds
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heap.add(pool);
+            }
+        }
+
+        // A fresh fleet every run, so each combination starts from the same state
+        List<Vehicle> fleet = generator.generate(vehicles);
+        FleetManager fm = new FleetManager();
+        long t0 = System.nanoTime();
+        for (Vehicle v : fleet) fm.addVehicle(v);
+        double addsPerSec = vehicles / ((System.nanoTime() - t0) / 1e9);
+        for (Vehicle v : fleet) {
+            if (v instanceof FuelConsumable fc) fc.refuel(FUEL);
+        }
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        HighwayCounter counter = new HighwayCounter();
+        counter.setStrategy(strategy);
+        counter.setMetrics(metrics.counter(counter::get, () -> strategy.name()));
+        TickScheduler scheduler = new TickScheduler(tickMillis, threads);
+        List<VehicleRunner> runners = new ArrayList<>(vehicles);
+        for (Vehicle v : fm.getFleet()) {
+            VehicleRunner r = new VehicleRunner(v, counter, tickMillis, increments);
+            r.setMetrics(metrics.runner(v.getId()));
+            scheduler.add(r);
+            runners.add(r);
+        }
+        SegmentedHighway highway = null;
+        if (segments > 0) {
+            highway = new SegmentedHighway(segments, 25);
+            highway.setStrategy(strategy);
+            highway.enterAll(runners);
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        long[] reads = {0};
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                fm.generateReport();
+                fm.getTopBySpeed(10);
+                fm.getFleet().size();
+                reads[0]++;
+            }
+        }, "fleet-reader");
+
+        long start = System.nanoTime();
+        scheduler.start();
+        reader.start();
+        Thread.sleep(durationMillis);
+        done.set(true);
+        scheduler.stop();
+        reader.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long expected = 0;
+        for (VehicleRunner r : runners) expected += r.getLocalDistance();
+        RunnerMetrics ticks = metrics.getRunnerAggregate();
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heap) peak += pool.getPeakUsage().getUsed();
+        long counted = highway == null ? counter.get() : highway.total();
+        Row row = new Row(vehicles, threads, segments, strategy, increments, durationMillis, expected / seconds,
+                ticks.getTicks() / seconds, ticks.getTickTimeP99Micros(), ticks.getTickLagP99Micros(),
+                expected - counted, addsPerSec, reads[0] / seconds, used >> 20, peak >> 20);
+        metrics.close();
+        return row;
+    }
+
+    static void write(List<Row> rows, String file) throws IOException {
+        PrintStream out = file == null ? System.out : new PrintStream(Files.newOutputStream(Path.of(file)));
+        try {
+            out.println("vehicles,threads,segments,strategy,increments,duration_ms,increments_per_sec,ticks_per_sec,p99_tick_us,"
+                    + "p99_lag_us,lost_updates,fleet_adds_per_sec,fleet_reads_per_sec,heap_used_mb,heap_peak_mb");
+            for (Row r : rows) {
+                out.printf(Locale.ROOT, "%d,%d,%d,%s,%d,%d,%.1f,%.1f,%d,%d,%d,%.1f,%.1f,%d,%d%n", r.vehicles(), r.threads(),
+                        r.segments(), r.strategy(), r.increments(), r.durationMillis(), r.incrementsPerSec(), r.ticksPerSec(),
+                        r.p99TickMicros(), r.p99LagMicros(), r.lostUpdates(), r.fleetAddsPerSec(), r.fleetReadsPerSec(),
+                        r.heapUsedMb(), r.heapPeakMb());
+            }
+        } finally {
+            if (file != null) out.close();
+        }
+    }
+
+    private static <T> List<T> list(String csv, Function<String, T> parse) {
+        List<T> out = new ArrayList<>();
+        for (String s : csv.split(",")) if (!s.isBlank()) out.add(parse.apply(s.trim()));
+        return out;
+    }
+
+    static List<Integer> threadCounts(int max) {
+        return HotPathBenchmark.threadCounts(max);
+    }
+}
\ No newline at end of file
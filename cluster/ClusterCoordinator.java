@@ -0,0 +1,430 @@
+package cluster;
+
+import fleet.VehicleRecord;
+import simulator.HighwayCounter;
+import simulator.SyncStrategy;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Splits a fleet into Wire.PARTITIONS partitions by ID hash and spreads them over the workers that connect on
+// loopback. Workers drive their partitions and batch back counter deltas and vehicle statuses, which are merged
+// here into one HighwayCounter and a fleet-wide view.
+//
+// A worker that joins takes partitions from the busiest workers: the owner is sent REVOKE, stops the partition
+// and answers RELEASED with its final state, which then goes to the new owner. A worker that disconnects or
+// falls silent has its partitions reassigned from the last statuses it sent, so at most one batch interval of
+// its progress is lost. A frame that does not parse or names a vehicle or partition the worker does not own
+// drops the worker the same way. Everything here runs on the thread that calls run().
+public class ClusterCoordinator implements AutoCloseable {
+    private static final class Node {
+        final int id;
+        final SocketChannel channel;
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        SelectionKey key;
+        long pid;
+        long lastHeard = System.currentTimeMillis();
+        long counted;
+        long km;
+        boolean alive = true;
+
+        Node(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final VehicleRecord[] records;
+    private final int[] partitionOf;
+    private final double[] mileage;
+    private final double[] fuel;
+    private final boolean[] outOfFuel;
+    private final List<List<Integer>> members = new ArrayList<>();
+    private final Node[] owner = new Node[Wire.PARTITIONS];
+    private final Map<Integer, Node> handoff = new HashMap<>(); // partition -> node it is moving to
+    private final List<Node> nodes = new ArrayList<>();
+    private final HighwayCounter total = new HighwayCounter();
+    private long km;
+    private long unsettledKm;   // distance dropped workers reported whose counter delta never arrived
+    private long reassigned;
+    private int nextNodeId = 1;
+
+    private SyncStrategy strategy = SyncStrategy.ATOMIC;
+    private long tickMillis = 1;
+    private int increments = 1;
+    private long batchMillis = 100;
+    private double refuel = 0;
+    private long timeoutMillis = 5000;
+
+    private ClusterCoordinator(ServerSocketChannel server, Selector selector, List<Vehicle> fleet) {
+        this.server = server;
+        this.selector = selector;
+        this.records = new VehicleRecord[fleet.size()];
+        this.partitionOf = new int[fleet.size()];
+        this.mileage = new double[fleet.size()];
+        this.fuel = new double[fleet.size()];
+        this.outOfFuel = new boolean[fleet.size()];
+        for (int p = 0; p < Wire.PARTITIONS; p++) members.add(new ArrayList<>());
+        for (int i = 0; i < fleet.size(); i++) {
+            records[i] = VehicleRecord.of(fleet.get(i));
+            mileage[i] = records[i].mileage();
+            fuel[i] = records[i].fuel();
+            partitionOf[i] = Wire.partitionOf(records[i].id());
+            members.get(partitionOf[i]).add(i);
+        }
+        total.setStrategy(SyncStrategy.ATOMIC);
+    }
+
+    // Listens on 127.0.0.1:port, 0 for any free port
+    public static ClusterCoordinator open(int port, List<Vehicle> fleet) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        Selector selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        return new ClusterCoordinator(server, selector, fleet);
+    }
+
+    // Counter strategy the workers use locally
+    public ClusterCoordinator withStrategy(SyncStrategy strategy) { this.strategy = strategy; return this; }
+    public ClusterCoordinator withTick(long tickMillis, int increments) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.increments = Math.max(1, increments);
+        return this;
+    }
+    // How often workers send deltas and statuses
+    public ClusterCoordinator withBatchInterval(long millis) { this.batchMillis = Math.max(1, millis); return this; }
+    // Litres a worker puts in a vehicle it finds out of fuel at a batch; 0 leaves it stranded
+    public ClusterCoordinator withAutoRefuel(double litres) { this.refuel = litres; return this; }
+    // A worker silent for this long is treated as dead
+    public ClusterCoordinator withWorkerTimeout(long millis) { this.timeoutMillis = millis; return this; }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+    public long getTotal() { return total.get() & 0xFFFFFFFFL; }
+    public long getDistance() { return km; }
+    public long getReassigned() { return reassigned; }
+    public int getLiveWorkers() { return (int) nodes.stream().filter(n -> n.alive).count(); }
+
+    // Serves workers for durationMillis, handing report() to reports every reportMillis (0 for none)
+    public void run(long durationMillis, long reportMillis, Consumer<String> reports) throws IOException {
+        long end = System.currentTimeMillis() + durationMillis;
+        long nextReport = reportMillis > 0 ? System.currentTimeMillis() + reportMillis : Long.MAX_VALUE;
+        long now;
+        while ((now = System.currentTimeMillis()) < end) {
+            selector.select(Math.max(1, Math.min(Math.min(end, nextReport) - now, batchMillis)));
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) {
+                    accept();
+                } else {
+                    Node node = (Node) key.attachment();
+                    if (key.isReadable()) readFrom(node);
+                    if (node.alive && key.isValid() && key.isWritable()) flush(node);
+                }
+            }
+            now = System.currentTimeMillis();
+            for (Node n : List.copyOf(nodes)) {
+                if (n.alive && now - n.lastHeard > timeoutMillis) drop(n, "silent for " + (now - n.lastHeard) + " ms");
+            }
+            if (now >= nextReport) {
+                reports.accept(report());
+                nextReport = now + reportMillis;
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true);
+        Node node = new Node(nextNodeId++, ch);
+        node.key = ch.register(selector, SelectionKey.OP_READ, node);
+        nodes.add(node);
+    }
+
+    private void readFrom(Node node) {
+        try {
+            if (node.channel.read(node.in) < 0) {
+                drop(node, "disconnected");
+                return;
+            }
+            node.lastHeard = System.currentTimeMillis();
+            node.in.flip();
+            while (node.in.remaining() >= 4) {
+                int len = node.in.getInt(node.in.position());
+                if (len <= 0 || len > Wire.MAX_FRAME) throw new IOException("bad frame length " + len);
+                if (node.in.remaining() < 4 + len) break;
+                node.in.getInt();
+                ByteBuffer frame = node.in.slice(node.in.position(), len);
+                node.in.position(node.in.position() + len);
+                handle(node, frame);
+                if (!node.alive) return;
+            }
+            node.in.compact();
+            if (!node.in.hasRemaining()) {
+                // A frame larger than the buffer: grow to fit it
+                int need = node.in.getInt(0) + 4;
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(need, node.in.capacity() * 2));
+                node.in.flip();
+                bigger.put(node.in);
+                node.in = bigger;
+            }
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException: a frame shorter than its type says, e.g. BufferUnderflowException
+            drop(node, e.toString());
+        }
+    }
+
+    private void handle(Node node, ByteBuffer b) throws IOException {
+        switch (b.get()) {
+            case Wire.HELLO -> {
+                node.pid = b.getLong();
+                ByteBuffer c = Wire.frame(Wire.CONFIG, 1 + 8 + 4 + 8 + 8);
+                c.put((byte) strategy.ordinal()).putLong(tickMillis).putInt(increments).putLong(batchMillis).putDouble(refuel);
+                send(node, Wire.done(c));
+                rebalance(node);
+            }
+            case Wire.DELTA -> {
+                long counted = b.getLong();
+                long distance = b.getLong();
+                if (counted < 0 || distance < 0) throw new IOException("negative delta");
+                node.counted += counted;
+                node.km += distance;
+                km += distance;
+                while (counted > 0) {
+                    int step = (int) Math.min(counted, Integer.MAX_VALUE);
+                    total.add(step);
+                    counted -= step;
+                }
+            }
+            case Wire.STATUS -> applyStatuses(node, b, -1);
+            case Wire.RELEASED -> {
+                int p = b.getInt();
+                if (p < 0 || p >= Wire.PARTITIONS || owner[p] != node) {
+                    throw new IOException("released partition " + p + " it does not own");
+                }
+                applyStatuses(node, b, p);
+                owner[p] = null;
+                Node target = handoff.remove(p);
+                if (target != null && target.alive) assign(p, target);
+                else assignUnowned();
+            }
+            default -> throw new IOException("Unknown message from worker " + node.id);
+        }
+    }
+
+    // Statuses must be for vehicles in partitions the node owns, or in released when that is not -1
+    private void applyStatuses(Node node, ByteBuffer b, int released) throws IOException {
+        int count = b.getInt();
+        if (count < 0 || count > b.remaining() / Wire.STATUS_BYTES) throw new IOException("bad status count " + count);
+        for (int i = 0; i < count; i++) {
+            int index = b.getInt();
+            if (index < 0 || index >= records.length) throw new IOException("status for unknown vehicle " + index);
+            int p = partitionOf[index];
+            if (released >= 0 ? p != released : owner[p] != node) {
+                throw new IOException("status for vehicle " + index + " in partition " + p + " it does not own");
+            }
+            mileage[index] = b.getDouble();
+            fuel[index] = b.getDouble();
+            outOfFuel[index] = (b.get() & Wire.FLAG_OUT_OF_FUEL) != 0;
+        }
+    }
+
+    // Unowned partitions go straight to the newcomer; then it takes partitions from the busiest workers until
+    // no worker has more than one partition over another
+    private void rebalance(Node newcomer) {
+        assignUnowned();
+        List<Node> donors = new ArrayList<>(nodes);
+        donors.remove(newcomer);
+        while (true) {
+            Node busiest = null;
+            int most = -1;
+            for (Node n : donors) {
+                int l = load(n);
+                if (n.alive && l > most) {
+                    busiest = n;
+                    most = l;
+                }
+            }
+            if (busiest == null || most - load(newcomer) <= 1) return;
+            int p = 0;
+            while (p < Wire.PARTITIONS && (owner[p] != busiest || handoff.containsKey(p))) p++;
+            if (p == Wire.PARTITIONS) {
+                // Its load is partitions still on their way to it; they cannot be revoked before they arrive
+                donors.remove(busiest);
+                continue;
+            }
+            handoff.put(p, newcomer);
+            ByteBuffer r = Wire.frame(Wire.REVOKE, 4);
+            r.putInt(p);
+            send(busiest, Wire.done(r));
+        }
+    }
+
+    // Partitions a worker holds or is about to receive, minus those it is handing away
+    private int load(Node n) {
+        int l = 0;
+        for (int p = 0; p < Wire.PARTITIONS; p++) {
+            Node target = handoff.get(p);
+            if (target == null ? owner[p] == n : target == n) l++;
+        }
+        return l;
+    }
+
+    private void assignUnowned() {
+        for (int p = 0; p < Wire.PARTITIONS; p++) {
+            if (owner[p] != null || handoff.containsKey(p)) continue;
+            Node least = null;
+            int fewest = Integer.MAX_VALUE;
+            for (Node n : nodes) {
+                int l = load(n);
+                if (n.alive && n.pid != 0 && l < fewest) {
+                    least = n;
+                    fewest = l;
+                }
+            }
+            if (least == null) return;
+            assign(p, least);
+        }
+    }
+
+    // Sends a partition's vehicles, as last reported, to their new owner
+    private void assign(int p, Node node) {
+        List<Integer> vehicles = members.get(p);
+        List<VehicleRecord> state = new ArrayList<>(vehicles.size());
+        int bytes = 8;
+        for (int i : vehicles) {
+            VehicleRecord r = records[i];
+            VehicleRecord now = new VehicleRecord(r.tag(), r.id(), r.model(), r.maxSpeed(), mileage[i], r.spec(),
+                    fuel[i], r.passengers(), r.cargo(), r.maintenance(), r.nextServiceKm());
+            state.add(now);
+            bytes += 4 + Wire.recordBytes(now);
+        }
+        ByteBuffer b = Wire.frame(Wire.ASSIGN, bytes);
+        b.putInt(p).putInt(vehicles.size());
+        for (int k = 0; k < vehicles.size(); k++) {
+            b.putInt(vehicles.get(k));
+            Wire.putRecord(b, state.get(k));
+        }
+        owner[p] = node;
+        send(node, Wire.done(b));
+    }
+
+    private void drop(Node node, String why) {
+        if (!node.alive) return;
+        node.alive = false;
+        nodes.remove(node);
+        node.key.cancel();
+        try {
+            node.channel.close();
+        } catch (IOException ignored) {
+        }
+        int lost = 0;
+        for (int p = 0; p < Wire.PARTITIONS; p++) {
+            if (owner[p] == node) {
+                owner[p] = null;
+                handoff.remove(p);
+                lost++;
+            }
+        }
+        handoff.values().removeIf(target -> target == node);
+        // Distance it reported ahead of the matching counter delta; that delta will never come
+        unsettledKm += Math.max(0, node.km - node.counted);
+        if (node.pid != 0) {
+            System.err.println("Worker " + node.id + " (pid " + node.pid + ") lost: " + why + "; reassigning "
+                    + lost + " partitions");
+        }
+        reassigned += lost;
+        assignUnowned();
+    }
+
+    private void send(Node node, ByteBuffer b) {
+        if (!node.alive) return;
+        node.out.add(b);
+        flush(node);
+    }
+
+    private void flush(Node node) {
+        try {
+            while (!node.out.isEmpty()) {
+                ByteBuffer b = node.out.peek();
+                node.channel.write(b);
+                if (b.hasRemaining()) break;
+                node.out.poll();
+            }
+            if (node.key.isValid()) {
+                node.key.interestOps(node.out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            drop(node, e.getMessage());
+        }
+    }
+
+    public String report() {
+        int owned = 0;
+        for (Node n : owner) if (n != null) owned++;
+        double totalMileage = 0;
+        int dry = 0;
+        for (int i = 0; i < records.length; i++) {
+            totalMileage += mileage[i];
+            if (outOfFuel[i]) dry++;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Cluster: %d live workers, %d/%d partitions owned, %d reassigned%n",
+                getLiveWorkers(), owned, Wire.PARTITIONS, reassigned));
+        sb.append(String.format("Counter total: %,d | distance: %,d km | lost updates: %,d | unsettled km from dropped workers: %,d%n",
+                getTotal(), km, km - getTotal() - unsettledKm, unsettledKm));
+        sb.append(String.format("Fleet: %,d vehicles, %,.1f km total mileage, %,d out of fuel%n",
+                records.length, totalMileage, dry));
+        for (Node n : nodes) {
+            int partitions = 0;
+            int vehicles = 0;
+            for (int p = 0; p < Wire.PARTITIONS; p++) {
+                if (owner[p] == n) {
+                    partitions++;
+                    vehicles += members.get(p).size();
+                }
+            }
+            sb.append(String.format("  worker %d (pid %d): %d partitions, %,d vehicles, %,d km counted%n",
+                    n.id, n.pid, partitions, vehicles, n.counted));
+        }
+        return sb.toString();
+    }
+
+    // Tells every worker to stop, then closes the sockets
+    @Override
+    public void close() throws IOException {
+        selector.close(); // deregisters the channels so they can switch to blocking mode
+        for (Node n : List.copyOf(nodes)) {
+            try {
+                n.channel.configureBlocking(true);
+                while (!n.out.isEmpty()) Wire.write(n.channel, n.out.poll());
+                Wire.write(n.channel, Wire.done(Wire.frame(Wire.STOP, 0)));
+            } catch (IOException ignored) {
+            }
+            n.channel.close();
+        }
+        server.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+package cluster;
+
+import fleet.VehicleRecord;
+import interfaces.FuelConsumable;
+import simulator.HighwayCounter;
+import simulator.SyncStrategy;
+import simulator.TickScheduler;
+import simulator.VehicleRunner;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// One JVM's share of a partitioned run: drives the partitions the coordinator assigns on a local TickScheduler
+// and reports counter/distance deltas plus the status of every vehicle that changed, once per batch interval.
+public class ClusterWorker implements AutoCloseable {
+    // A vehicle driven here, with what the coordinator has last been told about it
+    private static final class Slot {
+        final int index;
+        final Vehicle vehicle;
+        VehicleRunner runner;
+        long reportedKm;
+        double reportedMileage = -1;
+        double reportedFuel = -1;
+        boolean reportedOut;
+
+        Slot(int index, Vehicle vehicle) {
+            this.index = index;
+            this.vehicle = vehicle;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final HighwayCounter counter = new HighwayCounter();
+    private final Map<Integer, List<Slot>> partitions = new HashMap<>(); // guarded by this
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ClusterWorkerReporter");
+        t.setDaemon(true);
+        return t;
+    });
+    private TickScheduler scheduler;   // guarded by this
+    private long tickMillis = 1;
+    private int increments = 1;
+    private double refuel = 0;
+    private long reportedCounter = 0;  // guarded by this
+    private long carriedKm = 0;        // distance of retired runners not yet reported, guarded by this
+    private volatile boolean stopped = false;
+
+    private ClusterWorker(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    public static ClusterWorker connect(int port) throws IOException {
+        SocketChannel ch = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        ch.socket().setTcpNoDelay(true);
+        ClusterWorker w = new ClusterWorker(ch);
+        ByteBuffer hello = Wire.frame(Wire.HELLO, 8);
+        hello.putLong(ProcessHandle.current().pid());
+        w.send(Wire.done(hello));
+        return w;
+    }
+
+    // Serves the coordinator until it sends STOP or goes away
+    public void run() throws IOException {
+        try {
+            ByteBuffer frame;
+            while (!stopped && (frame = Wire.read(channel)) != null) {
+                switch (frame.get()) {
+                    case Wire.CONFIG -> configure(frame);
+                    case Wire.ASSIGN -> assign(frame);
+                    case Wire.REVOKE -> revoke(frame.getInt());
+                    case Wire.STOP -> stopped = true;
+                    default -> throw new IOException("Unknown message from coordinator");
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void configure(ByteBuffer b) throws IOException {
+        int strategy = b.get();
+        if (strategy < 0 || strategy >= SyncStrategy.values().length) throw new IOException("Bad strategy " + strategy);
+        counter.setStrategy(SyncStrategy.values()[strategy]);
+        tickMillis = b.getLong();
+        increments = b.getInt();
+        long batchMillis = b.getLong();
+        refuel = b.getDouble();
+        reporter.scheduleAtFixedRate(this::report, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void assign(ByteBuffer b) throws IOException {
+        int partition = b.getInt();
+        int count = b.getInt();
+        if (partition < 0 || partition >= Wire.PARTITIONS || count < 0) throw new IOException("Bad ASSIGN frame");
+        List<Slot> slots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = b.getInt();
+            VehicleRecord r = Wire.getRecord(b);
+            try {
+                slots.add(new Slot(index, r.toVehicle()));
+            } catch (Exception e) {
+                throw new IOException("Coordinator sent an invalid vehicle " + r.id() + ": " + e.getMessage(), e);
+            }
+        }
+        stopScheduler();
+        partitions.put(partition, slots);
+        startScheduler();
+    }
+
+    // Hands a partition back: stop driving it, settle its distance, and send its final state
+    private synchronized void revoke(int partition) throws IOException {
+        stopScheduler();
+        List<Slot> slots = partitions.remove(partition);
+        if (slots == null) slots = List.of();
+        startScheduler();
+        sendDelta();
+        ByteBuffer b = Wire.frame(Wire.RELEASED, 8 + slots.size() * Wire.STATUS_BYTES);
+        b.putInt(partition).putInt(slots.size());
+        for (Slot s : slots) putStatus(b, s);
+        send(Wire.done(b));
+    }
+
+    // A TickScheduler cannot take runners once started, so every change of partitions stops it and starts a new
+    // one with fresh runners; the retired runners' unreported distance is carried into the next delta
+    private void stopScheduler() {
+        if (scheduler == null) return;
+        scheduler.stop();
+        scheduler = null;
+        for (List<Slot> slots : partitions.values()) {
+            for (Slot s : slots) {
+                carriedKm += s.runner.getLocalDistance() - s.reportedKm;
+                s.reportedKm = 0;
+            }
+        }
+    }
+
+    private void startScheduler() {
+        if (partitions.isEmpty()) return;
+        scheduler = new TickScheduler(tickMillis);
+        for (List<Slot> slots : partitions.values()) {
+            for (Slot s : slots) {
+                s.runner = new VehicleRunner(s.vehicle, counter, tickMillis, increments);
+                scheduler.add(s.runner);
+            }
+        }
+        scheduler.start();
+    }
+
+    private void report() {
+        try {
+            synchronized (this) {
+                sendDelta();
+                List<Slot> changed = new ArrayList<>();
+                for (List<Slot> slots : partitions.values()) {
+                    for (Slot s : slots) {
+                        if (refuel > 0 && s.runner.isOutOfFuel()) s.runner.refuel(refuel);
+                        if (s.vehicle.getCurrentMileage() != s.reportedMileage || fuelOf(s) != s.reportedFuel
+                                || s.runner.isOutOfFuel() != s.reportedOut) {
+                            changed.add(s);
+                        }
+                    }
+                }
+                ByteBuffer b = Wire.frame(Wire.STATUS, 4 + changed.size() * Wire.STATUS_BYTES);
+                b.putInt(changed.size());
+                for (Slot s : changed) putStatus(b, s);
+                send(Wire.done(b));
+            }
+        } catch (IOException e) {
+            stopped = true;
+        }
+    }
+
+    // The counter is read before the distances, so a batch never shows more counted than driven
+    private void sendDelta() throws IOException {
+        long value = counter.get() & 0xFFFFFFFFL; // HighwayCounter.get() wraps at 2^32
+        long km = carriedKm;
+        carriedKm = 0;
+        for (List<Slot> slots : partitions.values()) {
+            for (Slot s : slots) {
+                long d = s.runner.getLocalDistance();
+                km += d - s.reportedKm;
+                s.reportedKm = d;
+            }
+        }
+        long delta = (value - reportedCounter) & 0xFFFFFFFFL;
+        reportedCounter = value;
+        ByteBuffer b = Wire.frame(Wire.DELTA, 16);
+        b.putLong(delta).putLong(km);
+        send(Wire.done(b));
+    }
+
+    private void putStatus(ByteBuffer b, Slot s) {
+        s.reportedMileage = s.vehicle.getCurrentMileage();
+        s.reportedFuel = fuelOf(s);
+        s.reportedOut = s.runner != null && s.runner.isOutOfFuel();
+        b.putInt(s.index).putDouble(s.reportedMileage).putDouble(s.reportedFuel)
+                .put(s.reportedOut ? Wire.FLAG_OUT_OF_FUEL : 0);
+    }
+
+    private static double fuelOf(Slot s) {
+        return s.vehicle instanceof FuelConsumable fc ? fc.getFuelLevel() : 0;
+    }
+
+    private void send(ByteBuffer b) throws IOException {
+        synchronized (channel) {
+            Wire.write(channel, b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopped = true;
+        reporter.shutdownNow();
+        synchronized (this) {
+            stopScheduler();
+        }
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package cluster;
+
+import fleet.VehicleRecord;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+// Framing and codecs shared by coordinator and workers. A frame is length (int, excluding itself), type (byte)
+// and a payload; vehicles travel as their global index plus either a full VehicleRecord (ASSIGN) or a fixed
+// 21-byte status of index, mileage, fuel and flags (STATUS, RELEASED).
+final class Wire {
+    static final int PARTITIONS = 64;
+    static final int MAX_FRAME = 1 << 28;
+    static final int STATUS_BYTES = 4 + 8 + 8 + 1;
+    static final byte FLAG_OUT_OF_FUEL = 1;
+
+    // worker -> coordinator
+    static final byte HELLO = 1;       // pid (long)
+    static final byte DELTA = 2;       // counter delta (long), distance delta (long)
+    static final byte STATUS = 3;      // count (int), statuses of vehicles that changed since the last batch
+    static final byte RELEASED = 4;    // partition (int), count (int), final statuses of the partition's vehicles
+    // coordinator -> worker
+    static final byte CONFIG = 10;     // strategy (byte), tick ms (long), increments (int), batch ms (long), refuel (double)
+    static final byte ASSIGN = 11;     // partition (int), count (int), then index (int) + VehicleRecord per vehicle
+    static final byte REVOKE = 12;     // partition (int)
+    static final byte STOP = 13;
+
+    private Wire() {}
+
+    static int partitionOf(String id) {
+        return Math.floorMod(id.hashCode(), PARTITIONS);
+    }
+
+    // A buffer with room for payloadBytes after the header; close it with done()
+    static ByteBuffer frame(byte type, int payloadBytes) {
+        ByteBuffer b = ByteBuffer.allocate(5 + payloadBytes);
+        b.putInt(0).put(type);
+        return b;
+    }
+
+    static ByteBuffer done(ByteBuffer b) {
+        b.putInt(0, b.position() - 4);
+        return b.flip();
+    }
+
+    static int recordBytes(VehicleRecord r) {
+        return 1 + stringBytes(r.id()) + stringBytes(r.model()) + 8 * 4 + 4 + 8 + 1 + 8;
+    }
+
+    static void putRecord(ByteBuffer b, VehicleRecord r) {
+        b.put(r.tag());
+        putString(b, r.id());
+        putString(b, r.model());
+        b.putDouble(r.maxSpeed()).putDouble(r.mileage()).putDouble(r.spec()).putDouble(r.fuel());
+        b.putInt(r.passengers()).putDouble(r.cargo()).put((byte) (r.maintenance() ? 1 : 0)).putDouble(r.nextServiceKm());
+    }
+
+    static VehicleRecord getRecord(ByteBuffer b) {
+        byte tag = b.get();
+        String id = getString(b);
+        String model = getString(b);
+        double maxSpeed = b.getDouble();
+        double mileage = b.getDouble();
+        double spec = b.getDouble();
+        double fuel = b.getDouble();
+        int passengers = b.getInt();
+        double cargo = b.getDouble();
+        boolean maintenance = b.get() != 0;
+        double nextServiceKm = b.getDouble();
+        return new VehicleRecord(tag, id, model, maxSpeed, mileage, spec, fuel, passengers, cargo, maintenance,
+                nextServiceKm);
+    }
+
+    static int stringBytes(String s) {
+        return 2 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    static void putString(ByteBuffer b, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        b.putShort((short) bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Blocking read of one frame, positioned at the type byte; null at end of stream
+    static ByteBuffer read(SocketChannel ch) throws IOException {
+        ByteBuffer len = ByteBuffer.allocate(4);
+        if (!fill(ch, len, true)) return null;
+        int n = len.flip().getInt();
+        if (n <= 0 || n > MAX_FRAME) throw new IOException("Bad frame length " + n);
+        ByteBuffer body = ByteBuffer.allocate(n);
+        fill(ch, body, false);
+        return body.flip();
+    }
+
+    private static boolean fill(SocketChannel ch, ByteBuffer b, boolean eofAllowed) throws IOException {
+        while (b.hasRemaining()) {
+            if (ch.read(b) < 0) {
+                if (eofAllowed && b.position() == 0) return false;
+                throw new EOFException("Connection closed mid-frame");
+            }
+        }
+        return true;
+    }
+
+    static void write(SocketChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,306 @@
+package fleet;
+
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Memory-maps a toCSV file, cuts it into chunks at line boundaries and parses the chunks in parallel.
+// Results are merged in file order so duplicate IDs and line numbers are reported as a sequential load would.
+public class FleetCsvLoader {
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 1 << 30;
+    private static final int MAX_FIELDS = 16;
+
+    private static final byte[] CAR = bytes("Car");
+    private static final byte[] TRUCK = bytes("Truck");
+    private static final byte[] BUS = bytes("Bus");
+    private static final byte[] AIRPLANE = bytes("Airplane");
+    private static final byte[] CARGO_SHIP = bytes("CargoShip");
+
+    public static LoadReport load(Path file, FleetManager fm) throws IOException {
+        LoadReport report = new LoadReport();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(ch);
+            int n = bounds.length - 1;
+            Chunk[] chunks = IntStream.range(0, n).parallel()
+                    .mapToObj(i -> parseChunk(ch, bounds[i], bounds[i + 1]))
+                    .toArray(Chunk[]::new);
+
+            long lineBase = 0;
+            for (Chunk c : chunks) {
+                int e = 0;
+                for (int i = 0; i < c.vehicles.size(); i++) {
+                    int line = c.vehicleLines.get(i);
+                    while (e < c.errorLines.size() && c.errorLines.get(e) < line) {
+                        report.skipped(lineBase + c.errorLines.get(e), c.errors.get(e));
+                        e++;
+                    }
+                    try {
+                        fm.addVehicleNoSync(c.vehicles.get(i));
+                        report.loaded();
+                    } catch (Exception ex) {
+                        report.skipped(lineBase + line, ex.getMessage());
+                    }
+                }
+                for (; e < c.errorLines.size(); e++) report.skipped(lineBase + c.errorLines.get(e), c.errors.get(e));
+                lineBase += c.lines;
+            }
+        }
+        fm.syncJournal();
+        return report;
+    }
+
+    // Nominal split points pushed forward to the next newline, so no line straddles two chunks
+    private static long[] chunkBounds(FileChannel ch) throws IOException {
+        long size = ch.size();
+        int parts = Runtime.getRuntime().availableProcessors() * 4;
+        long chunk = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / parts + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = chunk;
+        while (pos < size) {
+            long nl = -1;
+            long p = pos;
+            while (nl < 0 && p < size) {
+                probe.clear();
+                int read = ch.read(probe, p);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') { nl = p + i + 1; break; }
+                }
+                p += read;
+            }
+            if (nl < 0 || nl >= size) break;
+            bounds.add(nl);
+            pos = nl + chunk;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class Chunk {
+        final List<Vehicle> vehicles = new ArrayList<>();
+        final List<Integer> vehicleLines = new ArrayList<>();
+        final List<Integer> errorLines = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int lines;
+
+        void error(int line, String msg) {
+            // Only LoadReport.MAX_SAMPLES messages are ever printed, but every error must still be counted
+            errorLines.add(line);
+            errors.add(errors.size() < LoadReport.MAX_SAMPLES ? msg : "");
+        }
+    }
+
+    private static Chunk parseChunk(FileChannel ch, long from, long to) {
+        Chunk chunk = new Chunk();
+        if (to <= from) return chunk;
+        MappedByteBuffer buf;
+        try {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        Tokenizer tok = new Tokenizer(buf);
+        int limit = buf.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int end = pos;
+            while (end < limit && buf.get(end) != '\n') end++;
+            int lineEnd = end > pos && buf.get(end - 1) == '\r' ? end - 1 : end;
+            chunk.lines++;
+            if (!tok.isBlank(pos, lineEnd)) {
+                try {
+                    chunk.vehicles.add(tok.parseLine(pos, lineEnd));
+                    chunk.vehicleLines.add(chunk.lines);
+                } catch (Exception ex) {
+                    chunk.error(chunk.lines, ex.getMessage() == null ? ex.toString() : ex.getMessage());
+                }
+            }
+            pos = end + 1;
+        }
+        return chunk;
+    }
+
+    // Splits a line into field offsets and parses numbers straight from the mapped bytes; only IDs and
+    // not-yet-seen model names become Strings
+    static final class Tokenizer {
+        private static final double[] POW10 = new double[23];
+        static {
+            POW10[0] = 1;
+            for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+        }
+
+        private final ByteBuffer buf;
+        private final int[] starts = new int[MAX_FIELDS];
+        private final int[] ends = new int[MAX_FIELDS];
+        private final String[] modelCache = new String[1024];
+        private final byte[][] modelCacheBytes = new byte[1024][];
+        private int fields;
+
+        Tokenizer(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                byte b = buf.get(i);
+                if (b != ' ' && b != '\t') return false;
+            }
+            return true;
+        }
+
+        Vehicle parseLine(int from, int to) throws Exception {
+            fields = 0;
+            int start = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || buf.get(i) == ',') {
+                    if (fields == MAX_FIELDS) throw new IllegalArgumentException("Too many fields");
+                    starts[fields] = start;
+                    ends[fields++] = i;
+                    start = i + 1;
+                }
+            }
+            if (fields < 6) throw new IllegalArgumentException("Expected at least 6 fields, found " + fields);
+
+            String type = type(0);
+            VehicleFactory.Layout l = VehicleFactory.Layout.of(type);
+            double spec = type.equals("CargoShip") ? (bool(5) ? 1 : 0) : dbl(5);
+            Vehicle v = VehicleFactory.create(type, str(1), model(2), dbl(3), dbl(4), spec);
+            if (fields > 6) {
+                VehicleFactory.restoreState(v,
+                        l.fuel() < fields ? dbl(l.fuel()) : 0,
+                        l.passengers() > 0 && l.passengers() < fields ? integer(l.passengers()) : 0,
+                        l.cargo() > 0 && l.cargo() < fields ? dbl(l.cargo()) : 0,
+                        l.maintenance() < fields && bool(l.maintenance()),
+                        l.nextService() < fields ? dbl(l.nextService()) : Double.NaN);
+            }
+            return v;
+        }
+
+        private String type(int f) {
+            if (matches(f, CAR)) return "Car";
+            if (matches(f, TRUCK)) return "Truck";
+            if (matches(f, BUS)) return "Bus";
+            if (matches(f, AIRPLANE)) return "Airplane";
+            if (matches(f, CARGO_SHIP)) return "CargoShip";
+            return str(f);
+        }
+
+        private boolean matches(int f, byte[] expected) {
+            int len = ends[f] - starts[f];
+            if (len != expected.length) return false;
+            for (int i = 0; i < len; i++) {
+                if (buf.get(starts[f] + i) != expected[i]) return false;
+            }
+            return true;
+        }
+
+        private String str(int f) {
+            byte[] b = new byte[ends[f] - starts[f]];
+            buf.get(starts[f], b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        // Fleets repeat a handful of model names, so reuse the String when the bytes match a cached entry
+        private String model(int f) {
+            int h = 1;
+            for (int i = starts[f]; i < ends[f]; i++) h = 31 * h + buf.get(i);
+            int slot = (h ^ (h >>> 16)) & (modelCache.length - 1);
+            byte[] cached = modelCacheBytes[slot];
+            if (cached != null && matches(f, cached)) return modelCache[slot];
+            byte[] b = new byte[ends[f] - starts[f]];
+            buf.get(starts[f], b);
+            modelCacheBytes[slot] = b;
+            return modelCache[slot] = new String(b, StandardCharsets.UTF_8);
+        }
+
+        private boolean bool(int f) {
+            int len = ends[f] - starts[f];
+            if (len != 4) return false;
+            int s = starts[f];
+            return (buf.get(s) | 0x20) == 't' && (buf.get(s + 1) | 0x20) == 'r'
+                    && (buf.get(s + 2) | 0x20) == 'u' && (buf.get(s + 3) | 0x20) == 'e';
+        }
+
+        private int integer(int f) {
+            int i = starts[f];
+            int end = ends[f];
+            boolean neg = i < end && buf.get(i) == '-';
+            if (neg || (i < end && buf.get(i) == '+')) i++;
+            if (i == end) throw new NumberFormatException("Empty integer field");
+            long value = 0;
+            for (; i < end; i++) {
+                int d = buf.get(i) - '0';
+                if (d < 0 || d > 9) throw new NumberFormatException("For input string: \"" + str(f) + "\"");
+                value = value * 10 + d;
+                if (value > Integer.MAX_VALUE + 1L) throw new NumberFormatException("Integer overflow: " + str(f));
+            }
+            value = neg ? -value : value;
+            if (value > Integer.MAX_VALUE) throw new NumberFormatException("Integer overflow: " + str(f));
+            return (int) value;
+        }
+
+        // Exact fast path for up to 15 significant digits and |exponent| <= 22; anything else goes to Double.parseDouble
+        private double dbl(int f) {
+            int i = starts[f];
+            int end = ends[f];
+            boolean neg = false;
+            if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) neg = buf.get(i++) == '-';
+            long mantissa = 0;
+            int digits = 0;
+            int exp = 0;
+            boolean any = false;
+            for (; i < end; i++) {
+                int d = buf.get(i) - '0';
+                if (d < 0 || d > 9) break;
+                any = true;
+                if (mantissa != 0 || d != 0) digits++;
+                mantissa = mantissa * 10 + d;
+                if (digits > 15) return Double.parseDouble(str(f));
+            }
+            if (i < end && buf.get(i) == '.') {
+                for (i++; i < end; i++) {
+                    int d = buf.get(i) - '0';
+                    if (d < 0 || d > 9) break;
+                    any = true;
+                    if (mantissa != 0 || d != 0) digits++;
+                    mantissa = mantissa * 10 + d;
+                    exp--;
+                    if (digits > 15) return Double.parseDouble(str(f));
+                }
+            }
+            if (any && i < end && (buf.get(i) == 'E' || buf.get(i) == 'e')) {
+                i++;
+                boolean eneg = false;
+                if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) eneg = buf.get(i++) == '-';
+                int e = 0;
+                int start = i;
+                for (; i < end && e < 10_000; i++) {
+                    int d = buf.get(i) - '0';
+                    if (d < 0 || d > 9) break;
+                    e = e * 10 + d;
+                }
+                if (i == start) return Double.parseDouble(str(f));
+                exp += eneg ? -e : e;
+            }
+            if (!any || i != end || exp < -22 || exp > 22) return Double.parseDouble(str(f));
+            double value = exp >= 0 ? mantissa * POW10[exp] : mantissa / POW10[-exp];
+            return neg ? -value : value;
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
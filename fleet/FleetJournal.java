@@ -0,0 +1,419 @@
+package fleet;
+
+import interfaces.VehicleListener;
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// Append-only journal of fleet mutations with group commit and background checkpoints.
+//
+// Segment files journal-<n>.log hold framed entries: length (int), CRC32 (int), then the payload
+// (op byte + data). ADD carries the full VehicleRecord, REMOVE the id, STATE the full VehicleRecord after a
+// move, refuel, load or maintenance change. STATE holds absolute values, so moves made between two group
+// commits collapse into one entry per vehicle and replaying an entry twice is harmless.
+//
+// checkpoint-<n>.snap is a FleetSnapshot of the fleet as of the start of segment n. Recovery loads the newest
+// readable checkpoint and replays segments n and later, stopping at the first torn or corrupt entry; that segment
+// is truncated there and any later segments are discarded.
+public class FleetJournal implements AutoCloseable {
+    public enum FsyncPolicy {
+        // fsync every group commit; addVehicle/removeVehicle return only once their entry is on disk
+        ALWAYS,
+        // fsync at most every fsyncIntervalMillis
+        INTERVAL,
+        // leave flushing to the OS
+        NEVER
+    }
+
+    static final byte OP_ADD = 1;
+    static final byte OP_REMOVE = 2;
+    static final byte OP_STATE = 3;
+
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern CHECKPOINT = Pattern.compile("checkpoint-(\\d+)\\.snap");
+
+    private final Path dir;
+    private final FsyncPolicy policy;
+    private long commitIntervalMillis = 10;
+    private long fsyncIntervalMillis = 1000;
+    private long checkpointIntervalMillis = 60_000;
+    private long checkpointBytes = 64L << 20;
+
+    private final Map<String, Vehicle> tracked = new ConcurrentHashMap<>();
+    private final Set<Vehicle> dirty = ConcurrentHashMap.newKeySet();
+    private final ArrayDeque<ByteBuffer> ops = new ArrayDeque<>();
+    private long opSeq = 0;          // guarded by ops
+    private long durableSeq = 0;     // guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final VehicleListener listener = new VehicleListener() {
+        @Override
+        public void mileageChanged(Vehicle v, double delta) { dirty.add(v); }
+
+        @Override
+        public void stateChanged(Vehicle v) { dirty.add(v); }
+    };
+
+    private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "FleetJournalCheckpointer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer out = ByteBuffer.allocate(1 << 20);
+    private FileChannel segment;
+    private long segmentNo;
+    private long segmentBytes;
+    private long lastFsync = System.currentTimeMillis();
+    private long lastCheckpoint = System.currentTimeMillis();
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+    private Thread writer;
+    private String recoverySummary = "";
+
+    private FleetJournal(Path dir, FsyncPolicy policy) {
+        this.dir = dir;
+        this.policy = policy;
+    }
+
+    // Recovers dir into an empty FleetManager, then journals every further change to it
+    public static FleetJournal open(Path dir, FleetManager fm, FsyncPolicy policy) throws IOException {
+        FleetJournal j = new FleetJournal(dir, policy);
+        Files.createDirectories(dir);
+        j.segmentNo = j.recover(fm);
+        j.segment = FileChannel.open(j.segmentPath(j.segmentNo), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for (Vehicle v : fm.getFleet()) j.track(v);
+        fm.setJournal(j);
+        j.writer = new Thread(j::writeLoop, "FleetJournalWriter");
+        j.writer.setDaemon(true);
+        j.writer.start();
+        return j;
+    }
+
+    public FleetJournal withCommitInterval(long millis) { this.commitIntervalMillis = millis; return this; }
+    public FleetJournal withFsyncInterval(long millis) { this.fsyncIntervalMillis = millis; return this; }
+    public FleetJournal withCheckpointInterval(long millis, long bytes) {
+        this.checkpointIntervalMillis = millis;
+        this.checkpointBytes = bytes;
+        return this;
+    }
+
+    public String getRecoverySummary() { return recoverySummary; }
+
+    long logAdd(Vehicle v) {
+        track(v);
+        return enqueue(OP_ADD, FleetSnapshot.encodeStandalone(VehicleRecord.of(v)));
+    }
+
+    long logRemove(Vehicle v) {
+        tracked.remove(v.getId(), v);
+        v.removeListener(listener);
+        dirty.remove(v);
+        return enqueue(OP_REMOVE, ByteBuffer.wrap(v.getId().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Blocks until the entry with this sequence number is durable, if the policy asks for that; throws if the
+    // writer failed before getting there
+    void sync(long seq) {
+        if (policy != FsyncPolicy.ALWAYS) return;
+        lock.lock();
+        try {
+            workAvailable.signal();
+            while (durableSeq < seq && failure == null && writer.isAlive()) {
+                durable.awaitUninterruptibly();
+            }
+            if (durableSeq < seq) {
+                IOException f = failure;
+                throw new UncheckedIOException(f != null ? f : new IOException("Journal writer stopped"));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long lastSeq() {
+        synchronized (ops) {
+            return opSeq;
+        }
+    }
+
+    private void track(Vehicle v) {
+        tracked.put(v.getId(), v);
+        v.addListener(listener);
+    }
+
+    private long enqueue(byte op, ByteBuffer payload) {
+        ByteBuffer entry = ByteBuffer.allocate(1 + payload.remaining()).put(op).put(payload).flip();
+        synchronized (ops) {
+            ops.add(entry);
+            return ++opSeq;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (!closed) {
+                lock.lock();
+                try {
+                    workAvailable.await(commitIntervalMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                } finally {
+                    lock.unlock();
+                }
+                groupCommit();
+                long now = System.currentTimeMillis();
+                if (segmentBytes >= checkpointBytes || (segmentBytes > 0 && now - lastCheckpoint >= checkpointIntervalMillis)) {
+                    checkpoint();
+                }
+            }
+            groupCommit();
+            segment.force(true);
+        } catch (Throwable t) {
+            // Anything that kills the writer fails the journal, so committers waiting in sync() are released
+            failure = t instanceof IOException io ? io : new IOException("Journal writer failed: " + t, t);
+            System.out.println("Journal write failed: " + failure.getMessage());
+        } finally {
+            lock.lock();
+            try {
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Writes every queued op, then the current state of every vehicle that changed since the last commit
+    private void groupCommit() throws IOException {
+        long upTo;
+        List<ByteBuffer> batch;
+        synchronized (ops) {
+            batch = new ArrayList<>(ops);
+            ops.clear();
+            upTo = opSeq;
+        }
+        for (ByteBuffer entry : batch) frame(entry);
+        for (Iterator<Vehicle> it = dirty.iterator(); it.hasNext(); ) {
+            Vehicle v = it.next();
+            it.remove();
+            if (tracked.get(v.getId()) != v) continue;
+            ByteBuffer rec = FleetSnapshot.encodeStandalone(VehicleRecord.of(v));
+            frame(ByteBuffer.allocate(1 + rec.remaining()).put(OP_STATE).put(rec).flip());
+        }
+        drainOut();
+
+        long now = System.currentTimeMillis();
+        if (policy == FsyncPolicy.ALWAYS || (policy == FsyncPolicy.INTERVAL && now - lastFsync >= fsyncIntervalMillis)) {
+            segment.force(false);
+            lastFsync = now;
+        }
+        lock.lock();
+        try {
+            durableSeq = upTo;
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void frame(ByteBuffer entry) throws IOException {
+        int len = entry.remaining();
+        if (out.remaining() < len + 8) {
+            drainOut();
+            if (out.capacity() < len + 8) out = ByteBuffer.allocate(len + 8);
+        }
+        crc.reset();
+        crc.update(entry.duplicate());
+        out.putInt(len).putInt((int) crc.getValue()).put(entry);
+    }
+
+    private void drainOut() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) segmentBytes += segment.write(out);
+        out.clear();
+    }
+
+    // Rotates to a new segment and captures the fleet in memory; the snapshot is written off the writer thread.
+    // Anything that changes after the rotation lands in the new segment and is replayed over the checkpoint.
+    private void checkpoint() throws IOException {
+        groupCommit();
+        segment.force(true);
+        segment.close();
+        long next = ++segmentNo;
+        segment = FileChannel.open(segmentPath(next), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segmentBytes = 0;
+        lastCheckpoint = System.currentTimeMillis();
+        List<VehicleRecord> state = new ArrayList<>(tracked.size());
+        for (Vehicle v : tracked.values()) state.add(VehicleRecord.of(v));
+        checkpointer.execute(() -> writeCheckpoint(next, state));
+    }
+
+    private void writeCheckpoint(long n, List<VehicleRecord> state) {
+        Path tmp = dir.resolve("checkpoint-" + n + ".snap.tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                try (FleetSnapshot.Writer w = new FleetSnapshot.Writer(ch, true)) {
+                    for (VehicleRecord r : state) w.write(r);
+                }
+                ch.force(true);
+            }
+            Files.move(tmp, dir.resolve("checkpoint-" + n + ".snap"), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            for (long old : numbered(CHECKPOINT)) {
+                if (old < n) Files.deleteIfExists(dir.resolve("checkpoint-" + old + ".snap"));
+            }
+            for (long old : numbered(SEGMENT)) {
+                if (old < n) Files.deleteIfExists(segmentPath(old));
+            }
+        } catch (IOException e) {
+            System.out.println("Journal checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        lock.lock();
+        try {
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+            checkpointer.shutdown();
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Vehicle v : tracked.values()) v.removeListener(listener);
+        segment.close();
+        if (failure != null) throw failure;
+    }
+
+    // Returns the segment number to continue writing at
+    private long recover(FleetManager fm) throws IOException {
+        Map<String, VehicleRecord> state = new LinkedHashMap<>();
+        long base = -1;
+        List<Long> checkpoints = numbered(CHECKPOINT);
+        for (int i = checkpoints.size() - 1; i >= 0 && base < 0; i--) {
+            long n = checkpoints.get(i);
+            try (FileChannel ch = FileChannel.open(dir.resolve("checkpoint-" + n + ".snap"), StandardOpenOption.READ);
+                 FleetSnapshot.Reader reader = new FleetSnapshot.Reader(ch)) {
+                Map<String, VehicleRecord> loaded = new LinkedHashMap<>();
+                VehicleRecord r;
+                while ((r = reader.next()) != null) loaded.put(r.id(), r);
+                state = loaded;
+                base = n;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Skipping unreadable checkpoint " + n + ": " + e.getMessage());
+            }
+        }
+
+        long entries = 0;
+        long last = Math.max(base, 0);
+        boolean torn = false;
+        List<Long> segments = numbered(SEGMENT);
+        for (long n : segments) {
+            if (n < base) continue;
+            last = Math.max(last, n);
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segmentPath(n)));
+            int good = 0;
+            while (data.remaining() >= 8) {
+                int len = data.getInt();
+                int sum = data.getInt();
+                if (len <= 0 || len > data.remaining()) break;
+                ByteBuffer entry = data.slice(data.position(), len);
+                crc.reset();
+                crc.update(entry.duplicate());
+                if ((int) crc.getValue() != sum) break;
+                data.position(data.position() + len);
+                apply(entry, state);
+                entries++;
+                good = data.position();
+            }
+            if (good < data.limit()) {
+                // Nothing after a tear is trustworthy: cut this segment back to its last good entry and drop the
+                // segments after it, so the next recovery also stops here and then replays what we write next
+                torn = true;
+                try (FileChannel ch = FileChannel.open(segmentPath(n), StandardOpenOption.WRITE)) {
+                    ch.truncate(good);
+                    ch.force(true);
+                }
+                for (long later : segments) {
+                    if (later > n) Files.deleteIfExists(segmentPath(later));
+                }
+                break;
+            }
+        }
+
+        LoadReport report = new LoadReport("record");
+        long index = 0;
+        for (VehicleRecord r : state.values()) {
+            index++;
+            try {
+                fm.addVehicle(r.toVehicle());
+                report.loaded();
+            } catch (Exception e) {
+                report.skipped(index, e.getMessage());
+            }
+        }
+        recoverySummary = String.format("Journal %s: checkpoint %s, replayed %d entries%s%n%s", dir,
+                base < 0 ? "none" : String.valueOf(base), entries, torn ? " (stopped at a torn entry)" : "",
+                report.summary());
+        return last + 1;
+    }
+
+    private static void apply(ByteBuffer entry, Map<String, VehicleRecord> state) {
+        byte op = entry.get();
+        switch (op) {
+            case OP_ADD -> {
+                VehicleRecord r = FleetSnapshot.decodeStandalone(entry);
+                state.put(r.id(), r);
+            }
+            case OP_REMOVE -> state.remove(StandardCharsets.UTF_8.decode(entry).toString());
+            // A STATE entry may trail the REMOVE of its vehicle, so it never re-creates one
+            case OP_STATE -> {
+                VehicleRecord r = FleetSnapshot.decodeStandalone(entry);
+                state.replace(r.id(), r);
+            }
+            default -> throw new IllegalStateException("Unknown journal op: " + op);
+        }
+    }
+
+    private Path segmentPath(long n) {
+        return dir.resolve("journal-" + n + ".log");
+    }
+
+    private List<Long> numbered(Pattern pattern) throws IOException {
+        List<Long> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path p : files) {
+                Matcher m = pattern.matcher(p.getFileName().toString());
+                if (m.matches()) result.add(Long.parseLong(m.group(1)));
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
\ No newline at end of file
@@ -1,83 +1,280 @@
 package fleet;
 
 import exceptions.InvalidOperationException;
+import interfaces.VehicleListener;
 import vehicles.Vehicle;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 public class FleetManager {
-    private final List<Vehicle> fleet = new ArrayList<>();
+    // Writers are serialised by the write lock; readers get the cached immutable snapshot of the current version,
+    // rebuilt at most once per change, so the simulator, reports and CLI edits never see a half-applied update
+    private final StampedLock lock = new StampedLock();
+    private long version;
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    private record Snapshot(long version, List<Vehicle> vehicles) {}
+
+    // Keyed by vehicle ID in display order, so add, remove and lookup are O(1)
+    private final LinkedHashMap<String, Vehicle> fleet = new LinkedHashMap<>();
+    // Reference counts per model; modelNames and sortedModels change only when a count moves between 0 and 1
+    private final Map<String, Integer> modelCounts = new HashMap<>();
     private final Set<String> modelNames = new HashSet<>();
     private final TreeSet<String> sortedModels = new TreeSet<>();
 
+    // Ordered secondary indexes, updated on add/remove, serving sorts, fastest/slowest, top-k and range queries
+    private final SortedIndex<Double> bySpeed = new SortedIndex<>(Vehicle::getMaxSpeed, Comparator.naturalOrder());
+    private final SortedIndex<String> byModel = new SortedIndex<>(Vehicle::getModel, Comparator.naturalOrder());
+    private final SortedIndex<Double> byEfficiency = new SortedIndex<>(Vehicle::calculateFuelEfficiency, Comparator.reverseOrder());
+
+    // Running aggregates for generateReport, guarded by lock; only mileage is fed by simulator threads, through the
+    // vehicle listener. Sums are fixed-point micros, so a remove takes back exactly what the add put in.
+    private final Map<String, Integer> typeCounts = new TreeMap<>();
+    private long efficiencyMicros;
+    private final LongAdder mileageMicros = new LongAdder();
+    private final VehicleListener mileageTracker = (v, delta) -> mileageMicros.add(micros(delta));
+
+    private FleetJournal journal;
+    private MaintenanceScheduler maintenance;
+
     // Add a vehicle
     public void addVehicle(Vehicle v) throws InvalidOperationException {
+        addVehicleNoSync(v);
+        syncJournal();
+    }
+
+    // Bulk loaders add without waiting for the journal and call syncJournal() once at the end
+    void addVehicleNoSync(Vehicle v) throws InvalidOperationException {
         Objects.requireNonNull(v);
-        if (fleet.stream().anyMatch(x -> x.getId().equals(v.getId())))
-            throw new InvalidOperationException("Duplicate vehicle ID: " + v.getId());
-        fleet.add(v);
-        modelNames.add(v.getModel());
-        sortedModels.add(v.getModel());
+        long stamp = lock.writeLock();
+        try {
+            if (fleet.putIfAbsent(v.getId(), v) != null)
+                throw new InvalidOperationException("Duplicate vehicle ID: " + v.getId());
+            addToIndexes(v);
+            if (journal != null) journal.logAdd(v);
+            if (maintenance != null) maintenance.track(v);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void addToIndexes(Vehicle v) {
+        bySpeed.add(v);
+        byModel.add(v);
+        byEfficiency.add(v);
+        if (modelCounts.merge(v.getModel(), 1, Integer::sum) == 1) {
+            modelNames.add(v.getModel());
+            sortedModels.add(v.getModel());
+        }
+        typeCounts.merge(v.getClass().getSimpleName(), 1, Integer::sum);
+        efficiencyMicros += micros(v.calculateFuelEfficiency());
+        mileageMicros.add(micros(v.attachListener(mileageTracker)));
     }
 
     // Remove a vehicle
     public void removeVehicle(String id) throws InvalidOperationException {
-        boolean removed = fleet.removeIf(v -> v.getId().equals(id));
-        if (!removed) throw new InvalidOperationException("Vehicle not found: " + id);
-        refreshModelSets();
+        long seq = -1;
+        long stamp = lock.writeLock();
+        try {
+            Vehicle removed = fleet.remove(id);
+            if (removed == null) throw new InvalidOperationException("Vehicle not found: " + id);
+            removeFromIndexes(removed);
+            if (journal != null) seq = journal.logRemove(removed);
+            if (maintenance != null) maintenance.untrack(removed);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        // Wait for durability outside the lock so readers and other writers are not stalled behind an fsync
+        if (seq >= 0) journal.sync(seq);
     }
 
-    private void refreshModelSets() {
-        modelNames.clear();
-        sortedModels.clear();
-        for (Vehicle v : fleet) {
-            modelNames.add(v.getModel());
-            sortedModels.add(v.getModel());
+    private void removeFromIndexes(Vehicle removed) {
+        bySpeed.remove(removed);
+        byModel.remove(removed);
+        byEfficiency.remove(removed);
+        if (modelCounts.merge(removed.getModel(), -1, Integer::sum) == 0) {
+            modelCounts.remove(removed.getModel());
+            modelNames.remove(removed.getModel());
+            sortedModels.remove(removed.getModel());
+        }
+        typeCounts.computeIfPresent(removed.getClass().getSimpleName(), (k, n) -> n == 1 ? null : n - 1);
+        efficiencyMicros -= micros(removed.calculateFuelEfficiency());
+        mileageMicros.add(-micros(removed.detachListener(mileageTracker)));
+    }
+
+    void setJournal(FleetJournal journal) {
+        long stamp = lock.writeLock();
+        try {
+            this.journal = journal;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void setMaintenanceScheduler(MaintenanceScheduler maintenance) {
+        long stamp = lock.writeLock();
+        try {
+            this.maintenance = maintenance;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void syncJournal() {
+        FleetJournal j = journal;
+        if (j != null) j.sync(j.lastSeq());
+    }
+
+    public Optional<Vehicle> findById(String id) {
+        long stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(fleet.get(id));
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 
     // Getters
-    public List<Vehicle> getFleet() { return Collections.unmodifiableList(fleet); }
-    public Set<String> getDistinctModels() { return Collections.unmodifiableSet(modelNames); }
-    public SortedSet<String> getSortedModels() { return Collections.unmodifiableSortedSet(sortedModels); }
+    // Consistent point-in-time view; the same list is handed out until the next write
+    public List<Vehicle> getFleet() {
+        Snapshot s = snapshot;
+        long stamp = lock.tryOptimisticRead();
+        long v = version;
+        if (stamp != 0 && s.version() == v && lock.validate(stamp)) return s.vehicles();
+
+        stamp = lock.readLock();
+        try {
+            s = snapshot;
+            if (s.version() != version) {
+                s = new Snapshot(version, List.copyOf(fleet.values()));
+                snapshot = s;
+            }
+            return s.vehicles();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
 
-    // Sorting
-    public void sortBySpeed() { fleet.sort(Comparator.comparingDouble(Vehicle::getMaxSpeed)); }
-    public void sortByModel() { fleet.sort(Comparator.comparing(Vehicle::getModel)); }
-    public void sortByEfficiencyDesc() { Collections.sort(fleet); }
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int n = fleet.size();
+        if (lock.validate(stamp)) return n;
+        stamp = lock.readLock();
+        try {
+            return fleet.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
 
-    // Fastest/Slowest
-    public Optional<Vehicle> getFastest() {
-        return fleet.stream().max(Comparator.comparingDouble(Vehicle::getMaxSpeed));
+    public Set<String> getDistinctModels() {
+        long stamp = lock.readLock();
+        try {
+            return Set.copyOf(modelNames);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
-    public Optional<Vehicle> getSlowest() {
-        return fleet.stream().min(Comparator.comparingDouble(Vehicle::getMaxSpeed));
+
+    public SortedSet<String> getSortedModels() {
+        long stamp = lock.readLock();
+        try {
+            return Collections.unmodifiableSortedSet(new TreeSet<>(sortedModels));
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
-    // Report
+    // Sorting: the display order is copied from an index, nothing is re-sorted
+    public void sortBySpeed() { reorder(bySpeed); }
+    public void sortByModel() { reorder(byModel); }
+    public void sortByEfficiencyDesc() { reorder(byEfficiency); }
+
+    private void reorder(SortedIndex<?> index) {
+        long stamp = lock.writeLock();
+        try {
+            List<Vehicle> ordered = index.all();
+            fleet.clear();
+            for (Vehicle v : ordered) fleet.put(v.getId(), v);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Fastest/Slowest in O(log n)
+    public Optional<Vehicle> getFastest() { return read(bySpeed::last); }
+    public Optional<Vehicle> getSlowest() { return read(bySpeed::first); }
+
+    // Index queries; each returns a copy taken under the read lock
+    public List<Vehicle> getSortedBySpeed() { return read(bySpeed::all); }
+    public List<Vehicle> getSortedByModel() { return read(byModel::all); }
+    public List<Vehicle> getSortedByEfficiencyDesc() { return read(byEfficiency::all); }
+    public List<Vehicle> getTopBySpeed(int k) { return read(() -> bySpeed.head(k, true)); }
+    public List<Vehicle> getTopByEfficiency(int k) { return read(() -> byEfficiency.head(k, false)); }
+    public List<Vehicle> getBySpeedRange(double min, double max) { return read(() -> bySpeed.range(min, max)); }
+    public List<Vehicle> getByModelRange(String from, String to) { return read(() -> byModel.range(from, to)); }
+
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public double getTotalMileage() { return mileageMicros.sum() / 1e6; }
+
+    // Vehicle mileage is itself kept in micros, so this is exact for listener deltas and baselines
+    private static long micros(double value) {
+        return Math.round(value * 1e6);
+    }
+
+    // Report, served from the running aggregates in O(#types); every figure is read in one read section, so the
+    // per-type counts and the average match "Total vehicles" even while vehicles are added or removed
     public String generateReport() {
         StringBuilder sb = new StringBuilder();
         sb.append("=== Fleet Report ===\n");
-        sb.append("Total vehicles: ").append(fleet.size()).append('\n');
-        Map<String, Long> byType = fleet.stream()
-                .collect(Collectors.groupingBy(v -> v.getClass().getSimpleName(), Collectors.counting()));
-        byType.forEach((k, v) -> sb.append(String.format("%s: %d\n", k, v)));
-        double avgEff = fleet.isEmpty() ? 0 :
-                fleet.stream().mapToDouble(Vehicle::calculateFuelEfficiency).average().orElse(0);
-        double totalMileage = fleet.stream().mapToDouble(Vehicle::getCurrentMileage).sum();
+        int size;
+        int distinct;
+        String models;
+        Map<String, Integer> types;
+        long efficiency;
+        long mileage;
+        long stamp = lock.readLock();
+        try {
+            size = fleet.size();
+            distinct = modelNames.size();
+            models = sortedModels.toString();
+            types = new TreeMap<>(typeCounts);
+            efficiency = efficiencyMicros;
+            mileage = mileageMicros.sum();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        sb.append("Total vehicles: ").append(size).append('\n');
+        types.forEach((k, v) -> sb.append(String.format("%s: %d\n", k, v)));
+        double avgEff = size == 0 ? 0 : efficiency / 1e6 / size;
+        double totalMileage = mileage / 1e6;
         sb.append(String.format("Average efficiency: %.2f km/l\n", avgEff));
         sb.append(String.format("Total mileage: %.1f km\n", totalMileage));
-        sb.append("Distinct models: ").append(modelNames.size())
-                .append(" -> ").append(sortedModels).append('\n');
+        sb.append("Distinct models: ").append(distinct)
+                .append(" -> ").append(models).append('\n');
         return sb.toString();
     }
 
     // Save to CSV
     public void saveToFile(String filename) {
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
-            for (Vehicle v : fleet) {
+            for (Vehicle v : getFleet()) {
                 bw.write(v.toCSV());
                 bw.newLine();
             }
@@ -87,22 +284,38 @@ public class FleetManager {
         }
     }
 
-    // Load from CSV
-    public void loadFromFile(String filename) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.isBlank()) continue;
-                try {
-                    Vehicle v = VehicleFactory.createFromCSV(line);
-                    addVehicle(v);
-                } catch (Exception ex) {
-                    System.out.println("Skipping malformed line: " + line + " -> " + ex.getMessage());
-                }
-            }
-            System.out.println("Fleet loaded from file: " + filename);
+    // Save/Load binary snapshot
+    public void saveSnapshot(String filename, boolean compress) {
+        try {
+            FleetSnapshot.save(Path.of(filename), getFleet(), compress);
+            System.out.println("Fleet snapshot saved to file: " + filename);
         } catch (IOException e) {
+            System.out.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+
+    public LoadReport loadSnapshot(String filename) {
+        try {
+            LoadReport report = FleetSnapshot.load(Path.of(filename), this);
+            System.out.println("Fleet snapshot loaded from file: " + filename);
+            System.out.println(report.summary());
+            return report;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error loading snapshot: " + e.getMessage());
+            return new LoadReport("record");
+        }
+    }
+
+    // Load from CSV: parallel, memory-mapped parse with one summary instead of a message per bad line
+    public LoadReport loadFromFile(String filename) {
+        try {
+            LoadReport report = FleetCsvLoader.load(Path.of(filename), this);
+            System.out.println("Fleet loaded from file: " + filename);
+            System.out.println(report.summary());
+            return report;
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("Error loading file: " + e.getMessage());
+            return new LoadReport();
         }
     }
 }
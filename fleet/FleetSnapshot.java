@@ -0,0 +1,366 @@
+package fleet;
+
+import vehicles.Vehicle;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Versioned binary fleet snapshot.
+//
+//   header : magic "FLTS" (int), version (short), flags (byte, bit 0 = deflate)
+//   block  : rawLength (int), storedLength (int), CRC32 of the stored bytes (int), storedLength bytes;
+//            a rawLength of 0 ends the stream, and the trailer's CRC32 then covers the total record count (long)
+//            that follows
+//   record : type tag (byte), id (varint length + UTF-8), model (varint dictionary index, followed by
+//            varint length + UTF-8 when the index is new), maxSpeed, mileage, spec, fuel (doubles),
+//            passengers (int), cargo (double), maintenance (byte), next service mileage (double)
+//
+// The model dictionary restarts with every block, so blocks decode independently and can be parsed in parallel.
+public class FleetSnapshot {
+    public static final int MAGIC = 0x464C5453;
+    public static final short VERSION = 3;
+    public static final int FLAG_DEFLATE = 1;
+    static final int BLOCK_SIZE = 256 * 1024;
+    // Sanity bound on block lengths read back, so a corrupt header fails cleanly instead of allocating gigabytes
+    private static final int MAX_BLOCK = 1 << 28;
+    private static final int MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+
+    // Written to a temporary file next to file and moved over it only once complete, so a failure part way
+    // leaves the previous snapshot in place instead of a shorter one that still loads
+    public static void save(Path file, Collection<Vehicle> vehicles, boolean compress) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                try (Writer w = new Writer(ch, compress)) {
+                    for (Vehicle v : vehicles) w.write(VehicleRecord.of(v));
+                }
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    // Blocks are read sequentially and decoded on the common pool, a bounded number at a time. Nothing reaches fm
+    // until the whole file has decoded and the trailer's record count matches, so a bad file leaves the fleet as is.
+    public static LoadReport load(Path file, FleetManager fm) throws IOException {
+        List<VehicleRecord> records = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+             Reader reader = new Reader(ch)) {
+            ArrayDeque<CompletableFuture<List<VehicleRecord>>> inFlight = new ArrayDeque<>();
+            ByteBuffer block;
+            while ((block = reader.nextBlock()) != null) {
+                ByteBuffer b = block;
+                inFlight.add(CompletableFuture.supplyAsync(() -> decodeBlock(b)));
+                if (inFlight.size() >= MAX_IN_FLIGHT) records.addAll(join(inFlight.poll()));
+            }
+            while (!inFlight.isEmpty()) records.addAll(join(inFlight.poll()));
+            if (records.size() != reader.getRecordCount()) throw new IOException("Snapshot record count mismatch");
+        }
+        LoadReport report = new LoadReport("record");
+        long index = 0;
+        for (VehicleRecord r : records) {
+            index++;
+            try {
+                fm.addVehicleNoSync(r.toVehicle());
+                report.loaded();
+            } catch (Exception e) {
+                report.skipped(index, e.getMessage());
+            }
+        }
+        fm.syncJournal();
+        return report;
+    }
+
+    private static List<VehicleRecord> join(CompletableFuture<List<VehicleRecord>> decoded) throws IOException {
+        try {
+            return decoded.join();
+        } catch (CompletionException e) {
+            throw new IOException("Corrupt snapshot block: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // Upper bound on the encoded size; model is null when the record refers to an existing dictionary entry
+    static int encodedSize(byte[] id, byte[] model) {
+        return 1 + 5 + id.length + 5 + (model == null ? 0 : 5 + model.length) + 8 * 6 + 4 + 1;
+    }
+
+    static void encode(ByteBuffer b, VehicleRecord r, byte[] id, int modelIndex, byte[] newModel) {
+        b.put(r.tag());
+        writeVarint(b, id.length);
+        b.put(id);
+        writeVarint(b, modelIndex);
+        if (newModel != null) {
+            writeVarint(b, newModel.length);
+            b.put(newModel);
+        }
+        b.putDouble(r.maxSpeed()).putDouble(r.mileage()).putDouble(r.spec()).putDouble(r.fuel())
+                .putInt(r.passengers()).putDouble(r.cargo()).put((byte) (r.maintenance() ? 1 : 0))
+                .putDouble(r.nextServiceKm());
+    }
+
+    // A self-contained record with its model inline, for use outside a block (the journal)
+    static ByteBuffer encodeStandalone(VehicleRecord r) {
+        byte[] id = r.id().getBytes(StandardCharsets.UTF_8);
+        byte[] model = r.model().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(encodedSize(id, model));
+        encode(b, r, id, 0, model);
+        return b.flip();
+    }
+
+    static VehicleRecord decodeStandalone(ByteBuffer b) {
+        return decode(b, new ArrayList<>());
+    }
+
+    static List<VehicleRecord> decodeBlock(ByteBuffer block) {
+        List<VehicleRecord> out = new ArrayList<>();
+        List<String> dictionary = new ArrayList<>();
+        while (block.hasRemaining()) out.add(decode(block, dictionary));
+        return out;
+    }
+
+    static VehicleRecord decode(ByteBuffer b, List<String> dictionary) {
+        byte tag = b.get();
+        String id = readString(b);
+        int modelIndex = readVarint(b);
+        String model;
+        if (modelIndex == dictionary.size()) {
+            model = readString(b);
+            dictionary.add(model);
+        } else {
+            model = dictionary.get(modelIndex);
+        }
+        return new VehicleRecord(tag, id, model, b.getDouble(), b.getDouble(), b.getDouble(), b.getDouble(),
+                b.getInt(), b.getDouble(), b.get() != 0, b.getDouble());
+    }
+
+    public static class Writer implements AutoCloseable {
+        private final WritableByteChannel ch;
+        private final Deflater deflater;
+        private ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        private ByteBuffer compressed;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final CRC32 crc = new CRC32();
+        private long count;
+        private boolean failed;
+
+        public Writer(WritableByteChannel ch, boolean compress) throws IOException {
+            this.ch = ch;
+            this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            ByteBuffer header = ByteBuffer.allocate(7);
+            header.putInt(MAGIC).putShort(VERSION).put((byte) (compress ? FLAG_DEFLATE : 0)).flip();
+            writeFully(header);
+        }
+
+        public void write(VehicleRecord r) throws IOException {
+            if (failed) throw new IOException("Snapshot writer failed earlier");
+            failed = true; // until this record is in the block
+            byte[] id = r.id().getBytes(StandardCharsets.UTF_8);
+            Integer idx = dictionary.get(r.model());
+            byte[] model = idx == null ? r.model().getBytes(StandardCharsets.UTF_8) : null;
+            int size = encodedSize(id, model);
+            if (block.remaining() < size) {
+                flushBlock();
+                idx = null;
+                model = r.model().getBytes(StandardCharsets.UTF_8);
+                size = encodedSize(id, model);
+                if (block.capacity() < size) block = ByteBuffer.allocate(size);
+            }
+            if (idx == null) dictionary.put(r.model(), idx = dictionary.size());
+            encode(block, r, id, idx, model);
+            count++;
+            failed = false;
+        }
+
+        private void flushBlock() throws IOException {
+            block.flip();
+            int raw = block.remaining();
+            if (raw > 0) {
+                ByteBuffer payload = block;
+                if (deflater != null) {
+                    deflater.reset();
+                    deflater.setInput(block);
+                    deflater.finish();
+                    int bound = raw + raw / 1000 + 64;
+                    if (compressed == null || compressed.capacity() < bound) compressed = ByteBuffer.allocate(bound);
+                    compressed.clear();
+                    while (!deflater.finished()) {
+                        if (!compressed.hasRemaining()) {
+                            ByteBuffer bigger = ByteBuffer.allocate(compressed.capacity() * 2);
+                            compressed = bigger.put(compressed.flip());
+                        }
+                        deflater.deflate(compressed);
+                    }
+                    payload = compressed.flip();
+                }
+                crc.reset();
+                crc.update(payload.duplicate());
+                ByteBuffer lengths = ByteBuffer.allocate(12).putInt(raw).putInt(payload.remaining())
+                        .putInt((int) crc.getValue()).flip();
+                writeFully(lengths);
+                writeFully(payload);
+            }
+            block.clear();
+            dictionary.clear();
+        }
+
+        // Ends the stream with the trailer, unless a write failed: without a trailer a partial stream never
+        // passes for a complete, shorter fleet
+        @Override
+        public void close() throws IOException {
+            try {
+                if (failed) return;
+                failed = true;
+                flushBlock();
+                ByteBuffer total = ByteBuffer.allocate(8).putLong(count).flip();
+                crc.reset();
+                crc.update(total.duplicate());
+                writeFully(ByteBuffer.allocate(12).putInt(0).putInt(0).putInt((int) crc.getValue()).flip());
+                writeFully(total);
+            } finally {
+                if (deflater != null) deflater.end();
+            }
+        }
+
+        private void writeFully(ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) ch.write(b);
+        }
+    }
+
+    // Owns an Inflater, so close it; the channel stays open for the caller
+    public static class Reader implements AutoCloseable {
+        private final ReadableByteChannel ch;
+        private final boolean compressed;
+        private final Inflater inflater; // only for compressed snapshots, created once the header checks out
+        private long recordsRead;
+        private long recordCount = -1;
+        private ByteBuffer current;
+        private final List<String> dictionary = new ArrayList<>();
+        private final CRC32 crc = new CRC32();
+
+        public Reader(ReadableByteChannel ch) throws IOException {
+            this.ch = ch;
+            ByteBuffer header = readFully(7);
+            if (header.getInt() != MAGIC) throw new IOException("Not a fleet snapshot");
+            short version = header.getShort();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version: " + version);
+            this.compressed = (header.get() & FLAG_DEFLATE) != 0;
+            this.inflater = compressed ? new Inflater() : null;
+        }
+
+        // Decompressed contents of the next block, or null after the trailer
+        public ByteBuffer nextBlock() throws IOException {
+            if (recordCount >= 0) return null;
+            ByteBuffer lengths = readFully(12);
+            int raw = lengths.getInt();
+            int stored = lengths.getInt();
+            int sum = lengths.getInt();
+            if (raw == 0) {
+                ByteBuffer total = readFully(8);
+                check(total, sum);
+                recordCount = total.getLong();
+                return null;
+            }
+            if (raw < 0 || raw > MAX_BLOCK || stored <= 0 || stored > MAX_BLOCK) throw new IOException("Corrupt snapshot block header");
+            ByteBuffer payload = readFully(stored);
+            check(payload, sum);
+            if (!compressed) return payload;
+            ByteBuffer out = ByteBuffer.allocate(raw);
+            inflater.reset();
+            inflater.setInput(payload);
+            try {
+                while (out.hasRemaining() && !inflater.finished()) {
+                    if (inflater.inflate(out) == 0 && inflater.needsInput()) throw new EOFException("Truncated block");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt snapshot block", e);
+            }
+            return out.flip();
+        }
+
+        // Sequential record-at-a-time access for streaming consumers
+        public VehicleRecord next() throws IOException {
+            while (current == null || !current.hasRemaining()) {
+                current = nextBlock();
+                dictionary.clear();
+                if (current == null) {
+                    if (recordsRead != recordCount) throw new IOException("Snapshot record count mismatch");
+                    return null;
+                }
+            }
+            recordsRead++;
+            return decode(current, dictionary);
+        }
+
+        private void check(ByteBuffer b, int sum) throws IOException {
+            crc.reset();
+            crc.update(b.duplicate());
+            if ((int) crc.getValue() != sum) throw new IOException("Corrupt snapshot: checksum mismatch");
+        }
+
+        // Total records declared by the trailer; -1 until the last block has been read
+        public long getRecordCount() { return recordCount; }
+
+        private ByteBuffer readFully(int n) throws IOException {
+            ByteBuffer b = ByteBuffer.allocate(n);
+            while (b.hasRemaining()) {
+                if (ch.read(b) < 0) throw new EOFException("Truncated snapshot");
+            }
+            return b.flip();
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) inflater.end();
+        }
+    }
+
+    static void writeVarint(ByteBuffer b, int v) {
+        while ((v & ~0x7F) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    static int readVarint(ByteBuffer b) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte x = b.get();
+            v |= (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static String readString(ByteBuffer b) {
+        int len = readVarint(b);
+        String s = new String(b.array(), b.arrayOffset() + b.position(), len, StandardCharsets.UTF_8);
+        b.position(b.position() + len);
+        return s;
+    }
+}
\ No newline at end of file
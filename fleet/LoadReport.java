@@ -0,0 +1,43 @@
+package fleet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a bulk load: counts plus the first few problems, so a bad file cannot flood the console
+public class LoadReport {
+    public static final int MAX_SAMPLES = 10;
+
+    private final String unit;
+    private long loaded;
+    private long skipped;
+    private final List<String> samples = new ArrayList<>();
+
+    public LoadReport() {
+        this("line");
+    }
+
+    // unit names what a skipped entry is, e.g. "line" for CSV or "record" for snapshots
+    public LoadReport(String unit) {
+        this.unit = unit;
+    }
+
+    void loaded() { loaded++; }
+
+    void skipped(long line, String reason) {
+        skipped++;
+        if (samples.size() < MAX_SAMPLES) samples.add(unit + " " + line + ": " + reason);
+    }
+
+    public long getLoaded() { return loaded; }
+    public long getSkipped() { return skipped; }
+    public List<String> getSamples() { return Collections.unmodifiableList(samples); }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Loaded ").append(loaded).append(" vehicles, skipped ").append(skipped).append(' ').append(unit).append('s');
+        for (String s : samples) sb.append("\n  ").append(s);
+        if (skipped > samples.size()) sb.append("\n  ... ").append(skipped - samples.size()).append(" more");
+        return sb.toString();
+    }
+}
\ No newline at end of file
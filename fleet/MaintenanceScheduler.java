@@ -0,0 +1,240 @@
+package fleet;
+
+import interfaces.Maintainable;
+import interfaces.MaintenanceResult;
+import interfaces.VehicleListener;
+import vehicles.Vehicle;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Keeps every Maintainable vehicle of a fleet in a priority structure keyed by distance to its next service,
+// as given by the vehicle's own getNextServiceMileage().
+// Mileage changes from any thread re-key a vehicle only when it crosses a BUCKET_KM boundary. Vehicles that
+// reach their threshold, or are flagged with scheduleMaintenance(), are booked into a hierarchical timing
+// wheel; a driver thread expires the wheel every tick and hands due vehicles to a worker pool in batches.
+public class MaintenanceScheduler implements AutoCloseable {
+    static final double BUCKET_KM = 100;
+    private static final long DUE = -1;
+    private static final int MAX_RESULTS = 10_000;
+
+    public record Upcoming(Vehicle vehicle, double remainingKm) {}
+
+    // One per tracked vehicle; also its listener, so the mileage hot path needs no map lookup
+    private final class Entry implements VehicleListener {
+        final Vehicle vehicle;
+        final Maintainable m;
+        volatile long bucket = Long.MIN_VALUE; // guarded by queue for writes
+        volatile boolean removed;
+
+        Entry(Vehicle vehicle, Maintainable m) {
+            this.vehicle = vehicle;
+            this.m = m;
+        }
+
+        @Override
+        public void mileageChanged(Vehicle v, double delta) {
+            long b = bucket;
+            if (b != DUE && b != bucketOf(this)) rekey(this);
+        }
+
+        @Override
+        // Covers both scheduleMaintenance() and a moved next-service mileage
+        public void stateChanged(Vehicle v) {
+            long b = bucket;
+            if (b != DUE && b != bucketOf(this)) rekey(this);
+        }
+    }
+
+    private final FleetManager fm;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final TreeMap<Long, LinkedHashSet<Entry>> queue = new TreeMap<>(); // guarded by itself
+    private final ConcurrentLinkedQueue<Entry> booked = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedDeque<MaintenanceResult> results = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger due = new AtomicInteger();
+    private final AtomicLong serviced = new AtomicLong();
+    private final AtomicInteger resultCount = new AtomicInteger();
+
+    private long tickMillis = 10;
+    private long serviceDelayMillis = 0;
+    private int batchSize = 32;
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private Consumer<MaintenanceResult> sink = r -> {};
+
+    private ExecutorService pool;
+    private Thread driver;
+    private volatile boolean running;
+
+    private MaintenanceScheduler(FleetManager fm) {
+        this.fm = fm;
+    }
+
+    // Tracks every Maintainable vehicle in fm, now and as vehicles are added or removed
+    public static MaintenanceScheduler start(FleetManager fm) {
+        return new MaintenanceScheduler(fm).start();
+    }
+
+    public static MaintenanceScheduler create(FleetManager fm) {
+        return new MaintenanceScheduler(fm);
+    }
+
+    public MaintenanceScheduler withTick(long millis) { this.tickMillis = Math.max(1, millis); return this; }
+    // Time between a vehicle falling due and its service, e.g. a workshop booking
+    public MaintenanceScheduler withServiceDelay(long millis) { this.serviceDelayMillis = Math.max(0, millis); return this; }
+    public MaintenanceScheduler withBatchSize(int size) { this.batchSize = Math.max(1, size); return this; }
+    public MaintenanceScheduler withWorkers(int n) { this.workers = Math.max(1, n); return this; }
+    // Called on a worker thread for every completed service
+    public MaintenanceScheduler onResult(Consumer<MaintenanceResult> sink) { this.sink = Objects.requireNonNull(sink); return this; }
+
+    public synchronized MaintenanceScheduler start() {
+        if (running) return this;
+        running = true;
+        AtomicInteger n = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "maintenance-worker-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        driver = new Thread(this::driveWheel, "maintenance-scheduler");
+        driver.setDaemon(true);
+        driver.start();
+        fm.setMaintenanceScheduler(this);
+        for (Vehicle v : fm.getFleet()) track(v);
+        return this;
+    }
+
+    void track(Vehicle v) {
+        if (!(v instanceof Maintainable m)) return;
+        Entry e = new Entry(v, m);
+        if (entries.putIfAbsent(v.getId(), e) != null) return;
+        v.addListener(e);
+        rekey(e);
+    }
+
+    void untrack(Vehicle v) {
+        Entry e = entries.get(v.getId());
+        if (e == null || e.vehicle != v || !entries.remove(v.getId(), e)) return;
+        v.removeListener(e);
+        synchronized (queue) {
+            e.removed = true;
+            unlink(e);
+        }
+    }
+
+    // Vehicles closest to their next service, nearest first
+    public List<Upcoming> upcoming(int k) {
+        List<Entry> candidates = new ArrayList<>();
+        synchronized (queue) {
+            for (LinkedHashSet<Entry> bucket : queue.values()) {
+                if (candidates.size() >= k) break;
+                candidates.addAll(bucket);
+            }
+        }
+        List<Upcoming> out = new ArrayList<>();
+        for (Entry e : candidates) out.add(new Upcoming(e.vehicle, e.m.getNextServiceMileage() - e.vehicle.getCurrentMileage()));
+        out.sort(Comparator.comparingDouble(Upcoming::remainingKm));
+        return out.size() > k ? new ArrayList<>(out.subList(0, k)) : out;
+    }
+
+    // Completed services since the last call, oldest first
+    public List<MaintenanceResult> drainResults() {
+        List<MaintenanceResult> out = new ArrayList<>();
+        for (MaintenanceResult r; (r = results.pollFirst()) != null; ) {
+            resultCount.decrementAndGet();
+            out.add(r);
+        }
+        return out;
+    }
+
+    public int getTracked() { return entries.size(); }
+    public int getDue() { return due.get(); }
+    public long getServiced() { return serviced.get(); }
+    public boolean isRunning() { return running; }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+        }
+        fm.setMaintenanceScheduler(null);
+        LockSupport.unpark(driver);
+        try {
+            driver.join();
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Entry e : entries.values()) e.vehicle.removeListener(e);
+        entries.clear();
+    }
+
+    private static long bucketOf(Entry e) {
+        if (e.m.isMaintenanceScheduled()) return DUE;
+        double remaining = e.m.getNextServiceMileage() - e.vehicle.getCurrentMileage();
+        return remaining < 0 ? DUE : (long) (remaining / BUCKET_KM);
+    }
+
+    // Moves e to the bucket for its current distance, or books it into the wheel once it falls due
+    private void rekey(Entry e) {
+        synchronized (queue) {
+            if (e.removed || e.bucket == DUE) return;
+            long b = bucketOf(e);
+            if (b == e.bucket) return;
+            unlink(e);
+            e.bucket = b;
+            if (b == DUE) {
+                due.incrementAndGet();
+                booked.add(e);
+                LockSupport.unpark(driver);
+            } else {
+                queue.computeIfAbsent(b, k -> new LinkedHashSet<>()).add(e);
+            }
+        }
+    }
+
+    private void unlink(Entry e) {
+        long b = e.bucket;
+        if (b == DUE || b == Long.MIN_VALUE) return;
+        LinkedHashSet<Entry> bucket = queue.get(b);
+        if (bucket != null && bucket.remove(e) && bucket.isEmpty()) queue.remove(b);
+    }
+
+    private void driveWheel() {
+        TimingWheel<Entry> wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        List<Entry> batch = new ArrayList<>();
+        while (running) {
+            long now = System.currentTimeMillis();
+            for (Entry e; (e = booked.poll()) != null; ) wheel.schedule(e, now + serviceDelayMillis);
+            wheel.advance(now, batch::add);
+            for (int i = 0; i < batch.size(); i += batchSize) {
+                List<Entry> chunk = new ArrayList<>(batch.subList(i, Math.min(batch.size(), i + batchSize)));
+                pool.execute(() -> service(chunk));
+            }
+            batch.clear();
+            LockSupport.parkNanos(this, tickMillis * 1_000_000L);
+        }
+    }
+
+    private void service(List<Entry> chunk) {
+        for (Entry e : chunk) {
+            due.decrementAndGet();
+            if (e.removed) continue;
+            MaintenanceResult r = e.m.performMaintenance();
+            serviced.incrementAndGet();
+            synchronized (queue) {
+                if (e.removed) continue;
+                e.bucket = Long.MIN_VALUE;
+            }
+            rekey(e);
+            results.addLast(r);
+            if (resultCount.incrementAndGet() > MAX_RESULTS && results.pollFirst() != null) resultCount.decrementAndGet();
+            sink.accept(r);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package fleet;
+
+import vehicles.Vehicle;
+
+import java.util.*;
+import java.util.function.Function;
+
+// Ordered secondary index: key -> vehicles with that key, in insertion order within a key.
+// Keys must not change while a vehicle is indexed. Not thread-safe; FleetManager guards it with its lock.
+final class SortedIndex<K> {
+    private final TreeMap<K, LinkedHashMap<String, Vehicle>> buckets;
+    private final Function<Vehicle, K> key;
+
+    SortedIndex(Function<Vehicle, K> key, Comparator<? super K> order) {
+        this.key = key;
+        this.buckets = new TreeMap<>(order);
+    }
+
+    void add(Vehicle v) {
+        buckets.computeIfAbsent(key.apply(v), k -> new LinkedHashMap<>()).put(v.getId(), v);
+    }
+
+    void remove(Vehicle v) {
+        K k = key.apply(v);
+        LinkedHashMap<String, Vehicle> bucket = buckets.get(k);
+        if (bucket != null && bucket.remove(v.getId(), v) && bucket.isEmpty()) buckets.remove(k);
+    }
+
+    Optional<Vehicle> first() {
+        Map.Entry<K, LinkedHashMap<String, Vehicle>> e = buckets.firstEntry();
+        return e == null ? Optional.empty() : Optional.of(e.getValue().values().iterator().next());
+    }
+
+    Optional<Vehicle> last() {
+        Map.Entry<K, LinkedHashMap<String, Vehicle>> e = buckets.lastEntry();
+        return e == null ? Optional.empty() : Optional.of(e.getValue().values().iterator().next());
+    }
+
+    // Up to k vehicles from the front (or back) of the order
+    List<Vehicle> head(int k, boolean descending) {
+        List<Vehicle> out = new ArrayList<>(Math.max(0, Math.min(k, 1024)));
+        Collection<LinkedHashMap<String, Vehicle>> order = descending ? buckets.descendingMap().values() : buckets.values();
+        for (LinkedHashMap<String, Vehicle> bucket : order) {
+            for (Vehicle v : bucket.values()) {
+                if (out.size() >= k) return out;
+                out.add(v);
+            }
+        }
+        return out;
+    }
+
+    // Vehicles with from <= key <= to, in index order
+    List<Vehicle> range(K from, K to) {
+        List<Vehicle> out = new ArrayList<>();
+        if (buckets.comparator().compare(from, to) > 0) return out;
+        for (LinkedHashMap<String, Vehicle> bucket : buckets.subMap(from, true, to, true).values()) out.addAll(bucket.values());
+        return out;
+    }
+
+    List<Vehicle> all() { return head(Integer.MAX_VALUE, false); }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package fleet;
+
+import exceptions.InvalidOperationException;
+import vehicles.Vehicle;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Deterministic synthetic fleets for load tests. Vehicle i is derived from (seed, i) alone, so any slice of a
+// fleet can be generated on any thread in any order and the same seed always yields the same vehicles.
+// All transcendental maths goes through StrictMath so results do not depend on the JVM's intrinsics.
+public class SyntheticFleetGenerator {
+    private static final byte[] TAGS = {VehicleRecord.CAR, VehicleRecord.TRUCK, VehicleRecord.BUS,
+            VehicleRecord.AIRPLANE, VehicleRecord.CARGO_SHIP};
+    private static final String[] TYPES = {"Car", "Truck", "Bus", "Airplane", "CargoShip"};
+    private static final String[] ID_PREFIX = {"C", "T", "B", "A", "S"};
+    // Per type: typical top speed (km/h), tank size (l), passenger and cargo capacity
+    private static final double[] TYPICAL_SPEED = {160, 110, 90, 850, 35};
+    private static final double[] TANK = {60, 400, 300, 20000, 5000};
+    private static final int[] SEATS = {5, 0, 50, 200, 0};
+    private static final double[] HOLD = {0, 5000, 500, 10000, 50000};
+    private static final int[] TRUCK_WHEELS = {6, 8, 10, 18};
+    private static final int CSV_CHUNK = 16_384;
+
+    private final long seed;
+    private final double[] mix = {40, 20, 15, 10, 15};
+    private double speedSpread = 0.15;
+    private double meanMileage = 8000;
+    private int models = 50;
+    private double maintenanceRate = 0.02;
+
+    public SyntheticFleetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    // Relative weights of Car, Truck, Bus, Airplane and CargoShip
+    public SyntheticFleetGenerator withMix(double car, double truck, double bus, double airplane, double cargoShip) {
+        double[] w = {car, truck, bus, airplane, cargoShip};
+        double total = 0;
+        for (double x : w) {
+            if (x < 0) throw new IllegalArgumentException("Mix weights must not be negative");
+            total += x;
+        }
+        if (total <= 0) throw new IllegalArgumentException("Mix needs at least one positive weight");
+        System.arraycopy(w, 0, mix, 0, w.length);
+        return this;
+    }
+
+    // Command-line form, e.g. "Car:40,Truck:20,Bus:15,Airplane:10,CargoShip:15"; unnamed types get weight 0
+    public SyntheticFleetGenerator withMix(String spec) {
+        double[] w = new double[TYPES.length];
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":", 2);
+            int t = typeIndex(kv[0].trim());
+            w[t] = kv.length > 1 ? Double.parseDouble(kv[1].trim()) : 1;
+        }
+        return withMix(w[0], w[1], w[2], w[3], w[4]);
+    }
+
+    // Standard deviation of top speed as a fraction of the type's typical speed
+    public SyntheticFleetGenerator withSpeedSpread(double fraction) { this.speedSpread = Math.max(0, fraction); return this; }
+    // Mileage is exponentially distributed with this mean, so most vehicles are young and a few are well worn
+    public SyntheticFleetGenerator withMeanMileage(double km) { this.meanMileage = Math.max(0, km); return this; }
+    // Distinct model names per type; popular models are picked more often
+    public SyntheticFleetGenerator withModels(int perType) { this.models = Math.max(1, perType); return this; }
+    // Share of vehicles with an explicit maintenance flag
+    public SyntheticFleetGenerator withMaintenanceRate(double rate) { this.maintenanceRate = rate; return this; }
+
+    public VehicleRecord record(long index) {
+        SplittableRandom r = new SplittableRandom(mix64(seed + mix64(index)));
+        int t = pickType(r.nextDouble());
+
+        String id = ID_PREFIX[t] + index;
+        double u = r.nextDouble();
+        String model = TYPES[t] + "-M" + (int) (models * u * u);
+
+        double typical = TYPICAL_SPEED[t];
+        double speed = round1(Math.max(typical * 0.2, typical * (1 + speedSpread * gaussian(r))));
+        double mileage = round1(Math.min(meanMileage * 20, -meanMileage * StrictMath.log(1 - r.nextDouble())));
+
+        double spec = switch (t) {
+            case 0 -> 4;
+            case 1 -> TRUCK_WHEELS[r.nextInt(TRUCK_WHEELS.length)];
+            case 2 -> 6;
+            case 3 -> 9000 + 100 * r.nextInt(41);
+            default -> r.nextDouble() < 0.1 ? 1 : 0;
+        };
+        boolean sailing = t == 4 && spec == 1;
+        double fuel = sailing ? 0 : round1(r.nextDouble() * TANK[t]);
+        int passengers = SEATS[t] == 0 ? 0 : r.nextInt(SEATS[t] + 1);
+        double cargo = HOLD[t] == 0 ? 0 : round1(r.nextDouble() * HOLD[t]);
+        boolean maintenance = r.nextDouble() < maintenanceRate;
+        // Serviced on schedule so far, so only the flagged share starts due
+        return new VehicleRecord(TAGS[t], id, model, speed, mileage, spec, fuel, passengers, cargo, maintenance,
+                VehicleFactory.nextServiceBoundary(mileage));
+    }
+
+    // Records are valid by construction, so a failure here is a generator bug
+    public Vehicle vehicle(long index) {
+        try {
+            return record(index).toVehicle();
+        } catch (Exception e) {
+            throw new IllegalStateException("Generated an invalid vehicle at index " + index, e);
+        }
+    }
+
+    public List<Vehicle> generate(int count) {
+        List<Vehicle> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) out.add(vehicle(i));
+        return out;
+    }
+
+    public void addTo(FleetManager fm, int count) throws InvalidOperationException {
+        for (int i = 0; i < count; i++) fm.addVehicleNoSync(vehicle(i));
+        fm.syncJournal();
+    }
+
+    // Streams count vehicles to file in the toCSV format that loadFromFile and FleetCsvLoader read.
+    // Chunks are rendered on several threads but written strictly in index order, with at most two chunks per
+    // thread in flight, so memory stays bounded and the bytes depend only on the seed and the settings above.
+    public long writeCsv(Path file, long count, int threads) throws IOException {
+        int n = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "fleet-generator");
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<byte[]>> window = new ArrayDeque<>();
+        long bytes = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            long next = 0;
+            while (next < count || !window.isEmpty()) {
+                while (next < count && window.size() < 2 * n) {
+                    long from = next;
+                    long to = Math.min(count, next + CSV_CHUNK);
+                    window.add(pool.submit(() -> renderCsv(from, to)));
+                    next = to;
+                }
+                byte[] chunk = await(window.poll());
+                out.write(chunk);
+                bytes += chunk.length;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return bytes;
+    }
+
+    // Lines end in '\n' on every platform so the same seed gives the same file everywhere
+    private byte[] renderCsv(long from, long to) {
+        StringBuilder sb = new StringBuilder((int) (to - from) * 64);
+        for (long i = from; i < to; i++) sb.append(vehicle(i).toCSV()).append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] await(Future<byte[]> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating the fleet", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private int pickType(double u) {
+        double total = 0;
+        for (double w : mix) total += w;
+        double x = u * total;
+        for (int t = 0; t < mix.length; t++) {
+            x -= mix[t];
+            if (x < 0 && mix[t] > 0) return t;
+        }
+        for (int t = mix.length - 1; t >= 0; t--) if (mix[t] > 0) return t;
+        return 0;
+    }
+
+    private static int typeIndex(String type) {
+        for (int t = 0; t < TYPES.length; t++) if (TYPES[t].equalsIgnoreCase(type)) return t;
+        throw new IllegalArgumentException("Unknown vehicle type in mix: " + type);
+    }
+
+    // Box-Muller on StrictMath
+    private static double gaussian(SplittableRandom r) {
+        double u1 = 1 - r.nextDouble();
+        double u2 = r.nextDouble();
+        return StrictMath.sqrt(-2 * StrictMath.log(u1)) * StrictMath.cos(2 * Math.PI * u2);
+    }
+
+    private static double round1(double x) {
+        return Math.round(x * 10) / 10.0;
+    }
+
+    // Stafford variant 13 finaliser, so neighbouring indexes get unrelated streams
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package fleet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: LEVELS wheels of SLOTS buckets, each level's slot spanning a full turn of the level
+// below. Scheduling and expiry are O(1); timers cascade down a level when their coarse slot comes round.
+// Not thread-safe; a single driver thread owns it.
+final class TimingWheel<T> {
+    private static final int SLOTS = 64;
+    private static final int LEVELS = 4;
+
+    private record Timer<T>(T item, long deadlineTick) {}
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final ArrayDeque<Timer<T>>[][] wheels;
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.startMillis = startMillis;
+        this.wheels = newSlots(LEVELS, SLOTS);
+        for (ArrayDeque<Timer<T>>[] wheel : wheels) {
+            for (int s = 0; s < SLOTS; s++) wheel[s] = new ArrayDeque<>();
+        }
+    }
+
+    // Generic arrays cannot be created directly; every slot is filled with a fresh deque before use
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> ArrayDeque<E>[][] newSlots(int levels, int slots) {
+        return new ArrayDeque[levels][slots];
+    }
+
+    // Fires item on the first advance at or after deadlineMillis, and never earlier than the next tick
+    void schedule(T item, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis);
+        place(new Timer<>(item, Math.max(tick, currentTick + 1)));
+        size++;
+    }
+
+    // Moves the wheel forward to nowMillis, handing every expired item to expired in deadline order
+    void advance(long nowMillis, Consumer<T> expired) {
+        long target = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        while (currentTick < target) {
+            currentTick++;
+            long unit = SLOTS;
+            for (int level = 1; level < LEVELS && currentTick % unit == 0; level++, unit *= SLOTS) {
+                cascade(wheels[level][(int) ((currentTick / unit) % SLOTS)]);
+            }
+            ArrayDeque<Timer<T>> slot = wheels[0][(int) (currentTick % SLOTS)];
+            List<Timer<T>> notYet = null;
+            for (Timer<T> t; (t = slot.poll()) != null; ) {
+                if (t.deadlineTick() <= currentTick) {
+                    size--;
+                    expired.accept(t.item());
+                } else {
+                    if (notYet == null) notYet = new ArrayList<>();
+                    notYet.add(t);
+                }
+            }
+            if (notYet != null) notYet.forEach(this::place);
+        }
+    }
+
+    int size() { return size; }
+
+    private void cascade(ArrayDeque<Timer<T>> slot) {
+        List<Timer<T>> due = new ArrayList<>(slot);
+        slot.clear();
+        due.forEach(this::place);
+    }
+
+    private void place(Timer<T> t) {
+        long delta = t.deadlineTick() - currentTick;
+        int level = 0;
+        long unit = 1;
+        while (level < LEVELS - 1 && delta >= unit * SLOTS) {
+            level++;
+            unit *= SLOTS;
+        }
+        wheels[level][(int) ((t.deadlineTick() / unit) % SLOTS)].add(t);
+    }
+}
\ No newline at end of file
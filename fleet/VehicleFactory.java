@@ -1,43 +1,98 @@
 package fleet;
 
 import exceptions.InvalidOperationException;
+import interfaces.CargoCarrier;
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import interfaces.PassengerCarrier;
 import vehicles.*;
 
 public class VehicleFactory {
 
-    // Factory method to recreate a Vehicle from CSV line
+    // Factory method to recreate a Vehicle from CSV line, including the fuel, load and maintenance columns toCSV writes
     public static Vehicle createFromCSV(String csv) throws Exception {
         String[] t = csv.split(",");
         String type = t[0];
+        Vehicle v = create(type, t[1], t[2], Double.parseDouble(t[3]), Double.parseDouble(t[4]), parseSpec(type, t[5]));
+        if (t.length > 6) {
+            Layout l = Layout.of(type);
+            restoreState(v,
+                    l.fuel() < t.length ? Double.parseDouble(t[l.fuel()]) : 0,
+                    l.passengers() > 0 && l.passengers() < t.length ? Integer.parseInt(t[l.passengers()]) : 0,
+                    l.cargo() > 0 && l.cargo() < t.length ? Double.parseDouble(t[l.cargo()]) : 0,
+                    l.maintenance() < t.length && Boolean.parseBoolean(t[l.maintenance()]),
+                    l.nextService() < t.length ? Double.parseDouble(t[l.nextService()]) : Double.NaN);
+        }
+        return v;
+    }
+
+    // The sixth column differs per type: wheels, altitude or sail
+    static double parseSpec(String type, String value) {
+        return type.equals("CargoShip") ? (Boolean.parseBoolean(value) ? 1 : 0) : Double.parseDouble(value);
+    }
 
+    static Vehicle create(String type, String id, String model, double maxSpeed, double mileage, double spec)
+            throws InvalidOperationException {
         switch (type) {
             case "Car":
-                return new Car(t[1], t[2],
-                        Double.parseDouble(t[3]), Double.parseDouble(t[4]),
-                        Integer.parseInt(t[5]));
+                return new Car(id, model, maxSpeed, mileage, (int) spec);
 
             case "Truck":
-                return new Truck(t[1], t[2],
-                        Double.parseDouble(t[3]), Double.parseDouble(t[4]),
-                        Integer.parseInt(t[5]));
+                return new Truck(id, model, maxSpeed, mileage, (int) spec);
 
             case "Bus":
-                return new Bus(t[1], t[2],
-                        Double.parseDouble(t[3]), Double.parseDouble(t[4]),
-                        Integer.parseInt(t[5]));
+                return new Bus(id, model, maxSpeed, mileage, (int) spec);
 
             case "Airplane":
-                return new Airplane(t[1], t[2],
-                        Double.parseDouble(t[3]), Double.parseDouble(t[4]),
-                        Double.parseDouble(t[5]));
+                return new Airplane(id, model, maxSpeed, mileage, spec);
 
             case "CargoShip":
-                return new CargoShip(t[1], t[2],
-                        Double.parseDouble(t[3]), Double.parseDouble(t[4]),
-                        Boolean.parseBoolean(t[5]));
+                return new CargoShip(id, model, maxSpeed, mileage, spec != 0);
 
             default:
                 throw new InvalidOperationException("Unknown vehicle type: " + type);
         }
     }
+
+    // Re-applies saved state through the public interfaces so each type's own validation still runs.
+    // nextServiceKm is NaN for legacy CSV lines written before the column existed.
+    static void restoreState(Vehicle v, double fuel, int passengers, double cargo, boolean maintenance,
+                             double nextServiceKm) throws Exception {
+        if (fuel > 0 && v instanceof FuelConsumable fc) fc.refuel(fuel);
+        if (passengers > 0 && v instanceof PassengerCarrier pc) pc.boardPassengers(passengers);
+        if (cargo > 0 && v instanceof CargoCarrier cc) cc.loadCargo(cargo);
+        if (v instanceof Maintainable m) {
+            double mileage = v.getCurrentMileage();
+            // Legacy lines only carry needsMaintenance(): one saved as not due past the first interval was serviced
+            // since, so it gets the next interval boundary
+            if (!Double.isNaN(nextServiceKm)) m.setNextServiceMileage(nextServiceKm);
+            else if (!maintenance && mileage > m.getNextServiceMileage()) m.setNextServiceMileage(nextServiceBoundary(mileage));
+            if (maintenance && !m.needsMaintenance()) m.scheduleMaintenance();
+        }
+    }
+
+    // First service interval boundary past mileage
+    static double nextServiceBoundary(double mileage) {
+        return (Math.floor(mileage / Maintainable.SERVICE_INTERVAL_KM) + 1) * Maintainable.SERVICE_INTERVAL_KM;
+    }
+
+    // Column positions of the state fields in each type's toCSV output; -1 when the type has no such field
+    record Layout(int fuel, int passengers, int cargo, int maintenance, int nextService) {
+        static final Layout CAR = new Layout(6, 8, -1, 9, 10);
+        static final Layout TRUCK = new Layout(6, -1, 8, 9, 10);
+        static final Layout BUS = new Layout(6, 8, 10, 11, 12);
+        static final Layout AIRPLANE = new Layout(6, 8, 10, 11, 12);
+        static final Layout CARGO_SHIP = new Layout(9, -1, 7, 8, 10);
+
+        static Layout of(String type) throws InvalidOperationException {
+            return switch (type) {
+                case "Car" -> CAR;
+                case "Truck" -> TRUCK;
+                case "Bus" -> BUS;
+                case "Airplane" -> AIRPLANE;
+                case "CargoShip" -> CARGO_SHIP;
+                default -> throw new InvalidOperationException("Unknown vehicle type: " + type);
+            };
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package fleet;
+
+import exceptions.InvalidOperationException;
+import interfaces.CargoCarrier;
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import interfaces.PassengerCarrier;
+import vehicles.*;
+
+// Flat copy of everything needed to rebuild a vehicle, used by the binary snapshot and the journal
+public record VehicleRecord(byte tag, String id, String model, double maxSpeed, double mileage, double spec,
+                            double fuel, int passengers, double cargo, boolean maintenance, double nextServiceKm) {
+    public static final byte CAR = 1;
+    public static final byte TRUCK = 2;
+    public static final byte BUS = 3;
+    public static final byte AIRPLANE = 4;
+    public static final byte CARGO_SHIP = 5;
+
+    public static VehicleRecord of(Vehicle v) {
+        double spec = 0;
+        if (v instanceof LandVehicle lv) spec = lv.getNumWheels();
+        else if (v instanceof AirVehicle av) spec = av.getMaxAltitude();
+        else if (v instanceof WaterVehicle wv) spec = wv.isHasSail() ? 1 : 0;
+        return new VehicleRecord(tagOf(v), v.getId(), v.getModel(), v.getMaxSpeed(), v.getCurrentMileage(), spec,
+                v instanceof FuelConsumable fc ? fc.getFuelLevel() : 0,
+                v instanceof PassengerCarrier pc ? pc.getCurrentPassengers() : 0,
+                v instanceof CargoCarrier cc ? cc.getCurrentCargo() : 0,
+                v instanceof Maintainable m && m.needsMaintenance(),
+                v instanceof Maintainable m ? m.getNextServiceMileage() : 0);
+    }
+
+    public Vehicle toVehicle() throws Exception {
+        Vehicle v = VehicleFactory.create(typeName(tag), id, model, maxSpeed, mileage, spec);
+        VehicleFactory.restoreState(v, fuel, passengers, cargo, maintenance, nextServiceKm);
+        return v;
+    }
+
+    static byte tagOf(Vehicle v) {
+        if (v instanceof Car) return CAR;
+        if (v instanceof Truck) return TRUCK;
+        if (v instanceof Bus) return BUS;
+        if (v instanceof Airplane) return AIRPLANE;
+        if (v instanceof CargoShip) return CARGO_SHIP;
+        throw new IllegalArgumentException("Unsupported vehicle type: " + v.getClass().getSimpleName());
+    }
+
+    static String typeName(byte tag) throws InvalidOperationException {
+        return switch (tag) {
+            case CAR -> "Car";
+            case TRUCK -> "Truck";
+            case BUS -> "Bus";
+            case AIRPLANE -> "Airplane";
+            case CARGO_SHIP -> "CargoShip";
+            default -> throw new InvalidOperationException("Unknown vehicle type tag: " + tag);
+        };
+    }
+}
\ No newline at end of file
@@ -1,7 +1,14 @@
 package interfaces;
 
 public interface Maintainable {
+    // Mileage past which a new vehicle needs service, and the distance from one service to the next
+    double SERVICE_INTERVAL_KM = 10000;
+
     void scheduleMaintenance();
+    boolean isMaintenanceScheduled();
+    // True when scheduled or past getNextServiceMileage(); performMaintenance() moves that on by the interval
     boolean needsMaintenance();
-    void performMaintenance();
-}
+    double getNextServiceMileage();
+    void setNextServiceMileage(double km);
+    MaintenanceResult performMaintenance();
+}
\ No newline at end of file
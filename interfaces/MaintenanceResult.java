@@ -0,0 +1,10 @@
+package interfaces;
+
+// Outcome of one performMaintenance call
+public record MaintenanceResult(String vehicleId, String vehicleType, double mileage, boolean wasScheduled) {
+    @Override
+    public String toString() {
+        return vehicleType + " " + vehicleId + " maintenance performed at " + String.format("%.1f km", mileage)
+                + (wasScheduled ? " (scheduled)" : "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package interfaces;
+
+import vehicles.Vehicle;
+
+public interface VehicleListener {
+    // Called on the thread that changed the mileage; delta is negative on reset
+    void mileageChanged(Vehicle v, double delta);
+
+    // Fuel, load or maintenance state changed
+    default void stateChanged(Vehicle v) {}
+}
\ No newline at end of file
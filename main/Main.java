@@ -1,10 +1,25 @@
 package main;
 
+import cluster.ClusterCoordinator;
+import cluster.ClusterWorker;
 import exceptions.InvalidOperationException;
+import fleet.FleetJournal;
 import fleet.FleetManager;
+import fleet.MaintenanceScheduler;
+import fleet.SyntheticFleetGenerator;
+import interfaces.MaintenanceResult;
+import metrics.FlightRecording;
+import metrics.MetricsHttpServer;
+import metrics.MetricsRegistry;
 import vehicles.*;
+import simulator.EventSimulation;
 import simulator.HighwaySimulatorGUI;
+import simulator.RunReplay;
+import simulator.SyncStrategy;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 
@@ -12,15 +27,83 @@ public class Main {
     private static final Scanner sc = new Scanner(System.in);
 
     public static void main(String[] args) throws Exception {
+        // --generate=<file> writes a seeded synthetic fleet in CSV form and exits
+        String generateFile = option(args, "--generate");
+        if (generateFile != null) {
+            generate(Path.of(generateFile), args);
+            return;
+        }
+
+        // --replay=<file> re-drives a run recorded from the simulator GUI and exits
+        String replayFile = option(args, "--replay");
+        if (replayFile != null) {
+            replay(Path.of(replayFile), args);
+            return;
+        }
+
+        // --worker=<port> drives partitions for a coordinator on this machine until it stops
+        String workerPort = option(args, "--worker");
+        if (workerPort != null) {
+            ClusterWorker.connect(Integer.parseInt(workerPort)).run();
+            return;
+        }
+
         FleetManager fm = new FleetManager();
 
+        // --journal=<dir> recovers the fleet from its write-ahead journal and keeps journaling every change
+        FleetJournal journal = null;
+        String journalDir = option(args, "--journal");
+        if (journalDir != null) {
+            String fsync = option(args, "--fsync");
+            FleetJournal.FsyncPolicy policy = fsync == null ? FleetJournal.FsyncPolicy.INTERVAL
+                    : FleetJournal.FsyncPolicy.valueOf(fsync.toUpperCase());
+            journal = FleetJournal.open(Path.of(journalDir), fm, policy);
+            System.out.println(journal.getRecoverySummary());
+        }
+
         // Demo data for testing
-        fm.addVehicle(new Car("C001", "Toyota", 160, 9500, 4));
-        fm.addVehicle(new Truck("T001", "VolvoTruck", 120, 15000, 6));
-        fm.addVehicle(new Bus("B001", "CityBus", 100, 30000, 6));
-        fm.addVehicle(new Airplane("A001", "Boeing737", 850, 120000, 12000));
-        fm.addVehicle(new CargoShip("S001", "Maersk", 40, 200000, true));
+        if (fm.size() == 0) {
+            fm.addVehicle(new Car("C001", "Toyota", 160, 9500, 4));
+            fm.addVehicle(new Truck("T001", "VolvoTruck", 120, 15000, 6));
+            fm.addVehicle(new Bus("B001", "CityBus", 100, 30000, 6));
+            fm.addVehicle(new Airplane("A001", "Boeing737", 850, 120000, 12000));
+            fm.addVehicle(new CargoShip("S001", "Maersk", 40, 200000, true));
+        }
+
+        // --jfr=<file> records simulator JFR events from startup and writes them to file on exit
+        FlightRecording recording = new FlightRecording();
+        String jfrFile = option(args, "--jfr");
+        if (jfrFile != null) recording.start();
+
+        // --coordinator=<port> partitions the fleet over worker JVMs (see runCoordinator) instead of the menu
+        String coordinatorPort = option(args, "--coordinator");
+        if (coordinatorPort != null) {
+            runCoordinator(fm, Integer.parseInt(coordinatorPort), args);
+            saveRecording(recording, jfrFile);
+            if (journal != null) journal.close();
+            return;
+        }
+
+        // --headless may appear anywhere, like every other option
+        if (List.of(args).contains("--headless")) {
+            runHeadless(fm, args);
+            saveRecording(recording, jfrFile);
+            if (journal != null) journal.close();
+            return;
+        }
 
+        // --metrics=<port> serves simulator metrics as Prometheus text on http://127.0.0.1:<port>/metrics
+        MetricsRegistry metrics = new MetricsRegistry();
+        MetricsHttpServer metricsServer = null;
+        String metricsPort = option(args, "--metrics");
+        if (metricsPort != null) {
+            metricsServer = new MetricsHttpServer(metrics, Integer.parseInt(metricsPort));
+            System.out.println("Metrics at http://127.0.0.1:" + metricsServer.getPort() + "/metrics");
+        }
+
+        // --maintenance services due vehicles in the background from startup; otherwise menu 16 turns it on
+        MaintenanceScheduler maintenance = MaintenanceScheduler.create(fm);
+        if (List.of(args).contains("--maintenance")) maintenance.start();
         System.out.println("Welcome to Fleet Management System (Assignment 2/3)");
         boolean running = true;
 
@@ -40,7 +123,12 @@ public class Main {
                     case 9 -> fastestSlowest(fm);
                     case 10 -> report(fm);
                     case 11 -> running = false;
-                    case 12 -> launchSimulator(fm);
+                    case 12 -> launchSimulator(fm, metrics, recording);
+                    case 13 -> saveSnapshotCLI(fm);
+                    case 14 -> loadSnapshotCLI(fm);
+                    case 15 -> speedRangeCLI(fm);
+                    case 16 -> maintenanceCLI(maintenance);
+                    case 17 -> recordingCLI(recording);
                     default -> System.out.println("Invalid choice, try again!");
                 }
             } catch (Exception e) {
@@ -48,6 +136,11 @@ public class Main {
             }
         }
 
+        maintenance.close();
+        saveRecording(recording, jfrFile);
+        if (metricsServer != null) metricsServer.close();
+        metrics.close();
+        if (journal != null) journal.close();
         System.out.println("Exiting Fleet Management System. Goodbye!");
     }
 
@@ -65,6 +158,11 @@ public class Main {
         System.out.println("10. Generate Fleet Report");
         System.out.println("11. Exit");
         System.out.println("12. Launch Highway Simulator (GUI)");
+        System.out.println("13. Save Fleet Snapshot (binary)");
+        System.out.println("14. Load Fleet Snapshot (binary)");
+        System.out.println("15. Find Vehicles by Speed Range");
+        System.out.println("16. Maintenance Queue");
+        System.out.println("17. Start/Stop JFR Recording");
     }
 
     // Add vehicle
@@ -118,6 +216,19 @@ public class Main {
         fm.loadFromFile(file);
     }
 
+    // Save binary snapshot
+    private static void saveSnapshotCLI(FleetManager fm) {
+        String file = readStr("Enter snapshot filename to save (e.g., fleet.snap): ");
+        boolean compress = readBool("Compress? (true/false): ");
+        fm.saveSnapshot(file, compress);
+    }
+
+    // Load binary snapshot
+    private static void loadSnapshotCLI(FleetManager fm) {
+        String file = readStr("Enter snapshot filename to load: ");
+        fm.loadSnapshot(file);
+    }
+
     // Show fastest and slowest
     private static void fastestSlowest(FleetManager fm) {
         Optional<Vehicle> fastest = fm.getFastest();
@@ -126,18 +237,191 @@ public class Main {
         slowest.ifPresent(v -> { System.out.print("Slowest -> "); v.displayInfo(); });
     }
 
+    // Speed range query, served from the speed index
+    private static void speedRangeCLI(FleetManager fm) {
+        double min = readDouble("Min speed (km/h): ");
+        double max = readDouble("Max speed (km/h): ");
+        List<Vehicle> found = fm.getBySpeedRange(min, max);
+        if (found.isEmpty()) System.out.println("No vehicles in that speed range.");
+        found.forEach(Vehicle::displayInfo);
+    }
+
+    // Services completed by the scheduler since the last look, then the vehicles next in line
+    private static void maintenanceCLI(MaintenanceScheduler maintenance) {
+        if (!maintenance.isRunning()) {
+            if (!readBool("Background servicing is off. Start servicing due vehicles? (true/false): ")) return;
+            maintenance.start();
+        }
+        List<MaintenanceResult> done = maintenance.drainResults();
+        System.out.println("Serviced: " + maintenance.getServiced() + " | due now: " + maintenance.getDue()
+                + " | tracked: " + maintenance.getTracked());
+        done.forEach(System.out::println);
+        for (MaintenanceScheduler.Upcoming u : maintenance.upcoming(5)) {
+            System.out.printf("Next: %s (%s) in %.1f km%n", u.vehicle().getId(), u.vehicle().getModel(), u.remainingKm());
+        }
+    }
+
+    // JFR on/off; stopping asks where to write the recording
+    private static void recordingCLI(FlightRecording recording) throws Exception {
+        if (!recording.isRecording()) {
+            recording.start();
+            System.out.println("JFR recording started.");
+            return;
+        }
+        Path file = Path.of(readStr("Enter file to save the recording (e.g., simulator.jfr): "));
+        recording.stop(file);
+        System.out.println("JFR recording saved to " + file.toAbsolutePath());
+    }
+
+    private static void saveRecording(FlightRecording recording, String file) throws Exception {
+        Path path = Path.of(file != null ? file : "simulator.jfr");
+        if (recording.stop(path)) System.out.println("JFR recording saved to " + path.toAbsolutePath());
+    }
+
     // Generate report
     private static void report(FleetManager fm) {
         System.out.println(fm.generateReport());
     }
 
+    // Value of a --name=value command-line option, or null
+    private static String option(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) return arg.substring(name.length() + 1);
+        }
+        return null;
+    }
+
     // input
     private static int readInt(String prompt) { System.out.print(prompt); return sc.nextInt(); }
     private static double readDouble(String prompt) { System.out.print(prompt); return sc.nextDouble(); }
     private static String readStr(String prompt) { System.out.print(prompt); return sc.next(); }
     private static boolean readBool(String prompt) { System.out.print(prompt); return sc.nextBoolean(); }
 
-    private static void launchSimulator(FleetManager fm) {
-        javax.swing.SwingUtilities.invokeLater(() -> new HighwaySimulatorGUI(fm.getFleet()).setVisible(true));
+    // Batch/CI entry point: java main.Main --headless [--duration=ms] [--tick=ms] [--increments=n] [--strategy=ATOMIC] [--refuel=litres]
+    private static void runHeadless(FleetManager fm, String[] args) {
+        long duration = 60_000;
+        long tick = 1;
+        int increments = 1;
+        SyncStrategy strategy = SyncStrategy.ATOMIC;
+        double refuel = 0;
+        for (int i = 0; i < args.length; i++) {
+            String[] kv = args[i].split("=", 2);
+            String value = kv.length > 1 ? kv[1] : "";
+            switch (kv[0]) {
+                case "--duration" -> duration = Long.parseLong(value);
+                case "--tick" -> tick = Long.parseLong(value);
+                case "--increments" -> increments = Integer.parseInt(value);
+                case "--strategy" -> strategy = SyncStrategy.valueOf(value.toUpperCase());
+                case "--refuel" -> refuel = Double.parseDouble(value);
+                case "--headless", "--journal", "--fsync", "--metrics", "--jfr" -> { }
+                default -> System.out.println("Ignoring unknown option: " + args[i]);
+            }
+        }
+
+        EventSimulation sim = new EventSimulation(fm.getFleet(), strategy, tick, increments)
+                .withAutoRefuel(refuel, tick);
+        long start = System.nanoTime();
+        sim.run(duration);
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.print(sim.summary());
+        System.out.printf("Wall time: %.3f s (%.0fx real time)%n", wallSeconds, duration / 1000.0 / Math.max(wallSeconds, 1e-9));
+    }
+
+    // java main.Main --generate=<file> [--count=1000000] [--seed=42] [--mix=Car:40,Truck:20,...] [--models=50]
+    //                [--mileage=km] [--speed-spread=0.15] [--threads=cores]
+    private static void generate(Path file, String[] args) throws Exception {
+        long count = 1_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String seed = option(args, "--seed");
+        SyntheticFleetGenerator generator = new SyntheticFleetGenerator(seed == null ? 42 : Long.parseLong(seed));
+        String mix = option(args, "--mix");
+        if (mix != null) generator.withMix(mix);
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            String value = kv.length > 1 ? kv[1] : "";
+            switch (kv[0]) {
+                case "--count" -> count = Long.parseLong(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--models" -> generator.withModels(Integer.parseInt(value));
+                case "--mileage" -> generator.withMeanMileage(Double.parseDouble(value));
+                case "--speed-spread" -> generator.withSpeedSpread(Double.parseDouble(value));
+                case "--generate", "--seed", "--mix" -> { }
+                default -> System.out.println("Ignoring unknown option: " + arg);
+            }
+        }
+        long start = System.nanoTime();
+        long bytes = generator.writeCsv(file, count, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %,d vehicles (%,d bytes) to %s in %.2f s%n", count, bytes, file.toAbsolutePath(), seconds);
+    }
+
+    // java main.Main --replay=<file> [--threads=1] [--counter]
+    private static void replay(Path file, String[] args) throws Exception {
+        RunReplay replay = RunReplay.open(file);
+        String threads = option(args, "--threads");
+        if (threads != null) replay.withThreads(Integer.parseInt(threads));
+        if (List.of(args).contains("--counter")) replay.withCounter();
+        System.out.printf("Replaying %,d vehicles from %s, starting strategy %s%n", replay.getFleet().size(), file,
+                replay.getInitialStrategy());
+        System.out.print(replay.run().summary());
+    }
+
+    // java main.Main --coordinator=<port> [--spawn=2] [--vehicles=n] [--seed=42] [--duration=ms] [--strategy=ATOMIC]
+    //                [--tick=ms] [--increments=n] [--refuel=litres] [--batch=ms]
+    // Workers join with java main.Main --worker=<port>; --spawn starts that many on this machine. Without
+    // --vehicles the coordinator partitions the fleet it loaded (demo data or --journal).
+    private static void runCoordinator(FleetManager fm, int port, String[] args) throws Exception {
+        List<Vehicle> fleet = fm.getFleet();
+        long seed = 42;
+        int vehicles = 0;
+        int spawn = 0;
+        long duration = 60_000;
+        long tick = 1;
+        int increments = 1;
+        SyncStrategy strategy = SyncStrategy.ATOMIC;
+        double refuel = 0;
+        long batch = 100;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            String value = kv.length > 1 ? kv[1] : "";
+            switch (kv[0]) {
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--vehicles" -> vehicles = Integer.parseInt(value);
+                case "--spawn" -> spawn = Integer.parseInt(value);
+                case "--duration" -> duration = Long.parseLong(value);
+                case "--tick" -> tick = Long.parseLong(value);
+                case "--increments" -> increments = Integer.parseInt(value);
+                case "--strategy" -> strategy = SyncStrategy.valueOf(value.toUpperCase());
+                case "--refuel" -> refuel = Double.parseDouble(value);
+                case "--batch" -> batch = Long.parseLong(value);
+                case "--coordinator", "--journal", "--fsync", "--jfr" -> { }
+                default -> System.out.println("Ignoring unknown option: " + arg);
+            }
+        }
+        if (vehicles > 0) fleet = new SyntheticFleetGenerator(seed).generate(vehicles);
+
+        List<Process> workers = new ArrayList<>();
+        try (ClusterCoordinator coordinator = ClusterCoordinator.open(port, fleet)
+                .withStrategy(strategy)
+                .withTick(tick, increments)
+                .withBatchInterval(batch)
+                .withAutoRefuel(refuel)) {
+            System.out.printf("Coordinating %,d vehicles on 127.0.0.1:%d%n", fleet.size(), coordinator.getPort());
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < spawn; i++) {
+                workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "main.Main",
+                        "--worker=" + coordinator.getPort()).inheritIO().start());
+            }
+            coordinator.run(duration, 2000, System.out::print);
+            System.out.println("Final:");
+            System.out.print(coordinator.report());
+        }
+        for (Process p : workers) {
+            if (!p.waitFor(5, java.util.concurrent.TimeUnit.SECONDS)) p.destroy();
+        }
+    }
+
+    private static void launchSimulator(FleetManager fm, MetricsRegistry metrics, FlightRecording recording) {
+        javax.swing.SwingUtilities.invokeLater(() -> new HighwaySimulatorGUI(fm.getFleet(), metrics, recording).setVisible(true));
     }
 }
@@ -0,0 +1,21 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("simulator.CounterBatch")
+@Label("Counter Increments")
+@Category({"Fleet Simulator", "Counter"})
+@Description("One HighwayCounter.add call, including time blocked on the monitor or lock")
+@StackTrace(false)
+public class CounterBatchEvent extends Event {
+    @Label("Strategy")
+    public String strategy;
+
+    @Label("Increments")
+    public int increments;
+}
\ No newline at end of file
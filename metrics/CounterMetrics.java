@@ -0,0 +1,36 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+// Increments committed through a HighwayCounter's add() against the value it actually holds; the difference is
+// the number of updates lost to races. Distance a batching runner still holds back, or that a SegmentedHighway
+// charges to its own segment counters, never went through add() and is on neither side. Lock wait covers the
+// SYNCHRONIZED and LOCK strategies.
+public class CounterMetrics implements CounterMetricsMXBean {
+    private final IntSupplier value;
+    private final Supplier<String> strategy;
+    private final LongAdder increments = new LongAdder();
+    private final Histogram lockWait = new Histogram();
+    private final Rate rate = new Rate(increments::sum);
+
+    CounterMetrics(IntSupplier value, Supplier<String> strategy) {
+        this.value = value;
+        this.strategy = strategy;
+    }
+
+    public void added(int n) { increments.add(n); }
+    public void lockWait(long nanos) { lockWait.record(nanos); }
+
+    Histogram lockWait() { return lockWait; }
+
+    @Override public String getStrategy() { return strategy.get(); }
+    @Override public long getIncrements() { return increments.sum(); }
+    @Override public double getIncrementsPerSecond() { return rate.perSecond(); }
+    @Override public long getValue() { return value.getAsInt(); }
+    @Override public long getLostUpdates() { return Math.max(0, increments.sum() - value.getAsInt()); }
+    @Override public long getLockWaitP50Micros() { return lockWait.quantile(0.5) / 1000; }
+    @Override public long getLockWaitP99Micros() { return lockWait.quantile(0.99) / 1000; }
+    @Override public long getLockWaitMaxMicros() { return lockWait.getMax() / 1000; }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package metrics;
+
+public interface CounterMetricsMXBean {
+    String getStrategy();
+    long getIncrements();
+    double getIncrementsPerSecond();
+    long getValue();
+    long getLostUpdates();
+    long getLockWaitP50Micros();
+    long getLockWaitP99Micros();
+    long getLockWaitMaxMicros();
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package metrics;
+
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+// On/off switch for a JFR recording of the simulator's events plus the JDK's monitor, park and pinning events, so
+// blocked runner threads line up with ticks and counter batches in JDK Mission Control. While no recording
+// is running the events are disabled and cost one check each.
+public class FlightRecording {
+    // Uncontended adds take tens of nanoseconds; only adds that waited are worth a timeline entry
+    private static final Duration COUNTER_THRESHOLD = Duration.ofNanos(10_000);
+
+    private Recording recording;
+
+    public synchronized boolean isRecording() { return recording != null; }
+
+    public synchronized void start() {
+        if (recording != null) return;
+        Recording r = new Recording();
+        r.setName("Fleet Simulator");
+        r.enable(TickEvent.class).withoutThreshold();
+        r.enable(CounterBatchEvent.class).withThreshold(COUNTER_THRESHOLD);
+        r.enable(StrategySwitchEvent.class);
+        r.enable(RefuelEvent.class);
+        r.enable(FuelExhaustedEvent.class);
+        r.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(1)).withStackTrace();
+        r.enable("jdk.ThreadPark").withThreshold(Duration.ofMillis(1)).withStackTrace();
+        r.enable("jdk.VirtualThreadPinned").withoutThreshold().withStackTrace();
+        r.start();
+        recording = r;
+    }
+
+    // Stops the recording and writes it to file; returns false if nothing was recording
+    public synchronized boolean stop(Path file) throws IOException {
+        if (recording == null) return false;
+        Recording r = recording;
+        recording = null;
+        try {
+            r.stop();
+            r.dump(file);
+        } finally {
+            r.close();
+        }
+        return true;
+    }
+}
\ No newline at end of file
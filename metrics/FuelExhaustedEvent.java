@@ -0,0 +1,19 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("simulator.FuelExhausted")
+@Label("Fuel Exhausted")
+@Category({"Fleet Simulator", "Runners"})
+@StackTrace(false)
+public class FuelExhaustedEvent extends Event {
+    @Label("Vehicle")
+    public String vehicle;
+
+    @Label("Mileage (km)")
+    public double mileage;
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+// Owns the simulator's metrics for one run: the counter, a fleet-wide runner aggregate, and individual runner
+// metrics for the first PER_RUNNER_LIMIT vehicles (per-vehicle histograms for 100k runners would cost gigabytes).
+// Everything is registered as MXBeans under "simulator:" and rendered as Prometheus text by renderPrometheus().
+public class MetricsRegistry implements AutoCloseable {
+    public static final String DOMAIN = "simulator";
+    public static final int PER_RUNNER_LIMIT = 64;
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final List<RunnerMetrics> runners = new CopyOnWriteArrayList<>();
+    private volatile RunnerMetrics fleet = new RunnerMetrics("all", null);
+    private volatile CounterMetrics counter;
+
+    public synchronized CounterMetrics counter(IntSupplier value, Supplier<String> strategy) {
+        CounterMetrics m = new CounterMetrics(value, strategy);
+        register(name("HighwayCounter", null), m);
+        counter = m;
+        return m;
+    }
+
+    // Individual metrics while under the limit; after that the runner records into the fleet aggregate only
+    public synchronized RunnerMetrics runner(String vehicle) {
+        if (runners.isEmpty()) register(name("Runners", "all"), fleet);
+        if (runners.size() >= PER_RUNNER_LIMIT) return fleet;
+        RunnerMetrics m = new RunnerMetrics(vehicle, fleet);
+        register(name("Runner", vehicle), m);
+        runners.add(m);
+        return m;
+    }
+
+    // Fleet-wide aggregate every runner records into
+    public RunnerMetrics getRunnerAggregate() { return fleet; }
+
+    // Drops every metric, e.g. before the simulator starts a new run
+    public synchronized void clear() {
+        for (ObjectName n : registered) {
+            try {
+                server.unregisterMBean(n);
+            } catch (JMException ignored) {
+            }
+        }
+        registered.clear();
+        runners.clear();
+        fleet = new RunnerMetrics("all", null);
+        counter = null;
+    }
+
+    @Override
+    public void close() { clear(); }
+
+    public String renderPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        CounterMetrics c = counter;
+        if (c != null) {
+            String strategy = "strategy=\"" + escape(c.getStrategy()) + "\"";
+            family(sb, "simulator_counter_increments_total", "counter", "Increments requested of the highway counter");
+            sample(sb, "simulator_counter_increments_total", strategy, c.getIncrements());
+            family(sb, "simulator_counter_increments_per_second", "gauge", "Counter increments per second");
+            sample(sb, "simulator_counter_increments_per_second", strategy, c.getIncrementsPerSecond());
+            family(sb, "simulator_counter_value", "gauge", "Value held by the highway counter");
+            sample(sb, "simulator_counter_value", strategy, c.getValue());
+            family(sb, "simulator_counter_lost_updates", "gauge", "Increments committed through add() but missing from the counter value");
+            sample(sb, "simulator_counter_lost_updates", strategy, c.getLostUpdates());
+            family(sb, "simulator_counter_lock_wait_seconds", "summary", "Time to acquire the counter's monitor or lock");
+            summary(sb, "simulator_counter_lock_wait_seconds", strategy, c.lockWait());
+        }
+
+        List<RunnerMetrics> all = new ArrayList<>();
+        all.add(fleet);
+        all.addAll(runners);
+        family(sb, "simulator_runner_ticks_total", "counter", "Runner ticks");
+        for (RunnerMetrics r : all) sample(sb, "simulator_runner_ticks_total", label(r), r.getTicks());
+        family(sb, "simulator_runner_tick_rate", "gauge", "Runner ticks per second");
+        for (RunnerMetrics r : all) sample(sb, "simulator_runner_tick_rate", label(r), r.getTickRate());
+        family(sb, "simulator_runner_tick_lag_seconds", "summary", "Actual minus planned tick start");
+        for (RunnerMetrics r : all) summary(sb, "simulator_runner_tick_lag_seconds", label(r), r.tickLag());
+        family(sb, "simulator_runner_tick_duration_seconds", "summary", "Time spent inside one tick");
+        for (RunnerMetrics r : all) summary(sb, "simulator_runner_tick_duration_seconds", label(r), r.tickTime());
+        family(sb, "simulator_runner_out_of_fuel_seconds", "summary", "Time from running dry to the next refuel");
+        for (RunnerMetrics r : all) summary(sb, "simulator_runner_out_of_fuel_seconds", label(r), r.outOfFuelTime());
+        return sb.toString();
+    }
+
+    private void register(ObjectName name, Object mbean) {
+        try {
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(mbean, name);
+            registered.add(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + name, e);
+        }
+    }
+
+    private static ObjectName name(String type, String vehicle) {
+        try {
+            String n = DOMAIN + ":type=" + type + (vehicle == null ? "" : ",name=" + ObjectName.quote(vehicle));
+            return new ObjectName(n);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static String label(RunnerMetrics r) {
+        return "vehicle=\"" + escape(r.getVehicle()) + "\"";
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void family(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append('{').append(labels).append("} ")
+                .append(value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.3f", value))
+                .append('\n');
+    }
+
+    // Nanosecond histogram as a Prometheus summary in seconds
+    private static void summary(StringBuilder sb, String name, String labels, Histogram h) {
+        Histogram.Snapshot s = h.snapshot();
+        quantile(sb, name, labels, "0.5", s.p50());
+        quantile(sb, name, labels, "0.9", s.p90());
+        quantile(sb, name, labels, "0.99", s.p99());
+        quantile(sb, name, labels, "0.999", s.p999());
+        sb.append(name).append("_sum{").append(labels).append("} ").append(s.sum() / 1e9).append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(s.count()).append('\n');
+    }
+
+    private static void quantile(StringBuilder sb, String name, String labels, String q, long nanos) {
+        sb.append(name).append('{').append(labels).append(",quantile=\"").append(q).append("\"} ")
+                .append(nanos / 1e9).append('\n');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package metrics;
+
+import java.util.function.LongSupplier;
+
+// Per-second rate of a monotonic total, re-sampled at most once a second when read
+final class Rate {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final LongSupplier total;
+    private long lastTotal;
+    private long lastNanos = System.nanoTime();
+    private double perSecond;
+
+    Rate(LongSupplier total) {
+        this.total = total;
+        this.lastTotal = total.getAsLong();
+    }
+
+    synchronized double perSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - lastNanos;
+        if (elapsed >= WINDOW_NANOS) {
+            long t = total.getAsLong();
+            perSecond = (t - lastTotal) * 1e9 / elapsed;
+            lastTotal = t;
+            lastNanos = now;
+        }
+        return perSecond;
+    }
+}
\ No newline at end of file
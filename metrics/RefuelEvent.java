@@ -0,0 +1,20 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("simulator.Refuel")
+@Label("Refuel")
+@Category({"Fleet Simulator", "Runners"})
+public class RefuelEvent extends Event {
+    @Label("Vehicle")
+    public String vehicle;
+
+    @Label("Amount")
+    public double amount;
+
+    @Label("Fuel Level After")
+    public double fuelLevel;
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Tick rate, tick lag (actual minus planned start), tick duration and out-of-fuel time for one runner,
+// or for the whole fleet when used as the aggregate every runner also records into
+public class RunnerMetrics implements RunnerMetricsMXBean {
+    private final String vehicle;
+    private final RunnerMetrics fleet;
+    private final LongAdder ticks = new LongAdder();
+    private final Histogram tickLag = new Histogram();
+    private final Histogram tickTime = new Histogram();
+    private final Histogram outOfFuel = new Histogram();
+    private final Rate tickRate = new Rate(ticks::sum);
+
+    RunnerMetrics(String vehicle, RunnerMetrics fleet) {
+        this.vehicle = vehicle;
+        this.fleet = fleet;
+    }
+
+    // lagNanos is negative when there was no planned start, e.g. the first tick after parking
+    public void tick(long lagNanos, long durationNanos) {
+        ticks.increment();
+        if (lagNanos >= 0) tickLag.record(lagNanos);
+        tickTime.record(durationNanos);
+        if (fleet != null) fleet.tick(lagNanos, durationNanos);
+    }
+
+    public void outOfFuel(long nanos) {
+        outOfFuel.record(nanos);
+        if (fleet != null) fleet.outOfFuel(nanos);
+    }
+
+    Histogram tickLag() { return tickLag; }
+    Histogram tickTime() { return tickTime; }
+    Histogram outOfFuelTime() { return outOfFuel; }
+
+    @Override public String getVehicle() { return vehicle; }
+    @Override public long getTicks() { return ticks.sum(); }
+    @Override public double getTickRate() { return tickRate.perSecond(); }
+    @Override public long getTickLagP50Micros() { return tickLag.quantile(0.5) / 1000; }
+    @Override public long getTickLagP99Micros() { return tickLag.quantile(0.99) / 1000; }
+    @Override public long getTickLagMaxMicros() { return tickLag.getMax() / 1000; }
+    @Override public long getTickTimeP99Micros() { return tickTime.quantile(0.99) / 1000; }
+    @Override public long getOutOfFuelEpisodes() { return outOfFuel.getCount(); }
+    @Override public long getOutOfFuelMillis() { return outOfFuel.getSum() / 1_000_000; }
+    @Override public long getOutOfFuelP99Millis() { return outOfFuel.quantile(0.99) / 1_000_000; }
+}
\ No newline at end of file
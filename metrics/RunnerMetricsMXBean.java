@@ -0,0 +1,14 @@
+package metrics;
+
+public interface RunnerMetricsMXBean {
+    String getVehicle();
+    long getTicks();
+    double getTickRate();
+    long getTickLagP50Micros();
+    long getTickLagP99Micros();
+    long getTickLagMaxMicros();
+    long getTickTimeP99Micros();
+    long getOutOfFuelEpisodes();
+    long getOutOfFuelMillis();
+    long getOutOfFuelP99Millis();
+}
\ No newline at end of file
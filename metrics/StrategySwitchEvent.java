@@ -0,0 +1,17 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("simulator.StrategySwitch")
+@Label("Strategy Switch")
+@Category({"Fleet Simulator", "Counter"})
+public class StrategySwitchEvent extends Event {
+    @Label("From")
+    public String from;
+
+    @Label("To")
+    public String to;
+}
\ No newline at end of file
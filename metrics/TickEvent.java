@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("simulator.Tick")
+@Label("Runner Tick")
+@Category({"Fleet Simulator", "Runners"})
+@Description("One VehicleRunner tick, from start to end")
+@StackTrace(false)
+public class TickEvent extends Event {
+    @Label("Vehicle")
+    public String vehicle;
+
+    @Label("Distance (km)")
+    public int km;
+
+    @Label("Out Of Fuel")
+    public boolean outOfFuel;
+}
\ No newline at end of file
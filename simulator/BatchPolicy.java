@@ -0,0 +1,11 @@
+package simulator;
+
+// A runner holding a BatchPolicy commits its distance to the counter every maxIncrements units or maxMillis, whichever comes first
+public record BatchPolicy(int maxIncrements, long maxMillis) {
+    public static final BatchPolicy DEFAULT = new BatchPolicy(64, 50);
+
+    public BatchPolicy {
+        if (maxIncrements < 1) throw new IllegalArgumentException("maxIncrements must be at least 1");
+        if (maxMillis < 0) throw new IllegalArgumentException("maxMillis cannot be negative");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package simulator;
+
+import jdk.jfr.consumer.RecordingStream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Status line for the runner threads: process CPU time between two samples (GC, the EDT and every other thread
+// included, so it is an upper bound on what the runners use), and with virtual threads, how often and how long
+// a virtual thread pinned its carrier, e.g. by blocking on SYNCHRONIZED's monitor on JDK 21-23.
+public class CarrierMonitor implements AutoCloseable {
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final int carriers;
+    private long lastCpuNanos;
+    private long lastWallNanos;
+
+    // jdk.VirtualThreadPinned events, streamed only while virtual threads run
+    private final RecordingStream pinning;
+    private final AtomicLong pinned = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+
+    public CarrierMonitor(ExecutionMode mode) {
+        boolean virtual = mode == ExecutionMode.VIRTUAL && ExecutionMode.virtualThreadsAvailable();
+        int parallelism = cores;
+        if (virtual) {
+            try {
+                parallelism = Integer.parseInt(System.getProperty("jdk.virtualThreadScheduler.parallelism", String.valueOf(cores)));
+            } catch (NumberFormatException ignored) {}
+        }
+        this.carriers = parallelism;
+        this.lastCpuNanos = processCpuNanos();
+        this.lastWallNanos = System.nanoTime();
+        this.pinning = virtual ? streamPinning() : null;
+    }
+
+    private RecordingStream streamPinning() {
+        RecordingStream rs = new RecordingStream();
+        rs.enable("jdk.VirtualThreadPinned").withoutThreshold();
+        rs.onEvent("jdk.VirtualThreadPinned", e -> {
+            pinned.incrementAndGet();
+            pinnedNanos.addAndGet(e.getDuration().toNanos());
+        });
+        rs.startAsync();
+        return rs;
+    }
+
+    public int getCarriers() { return carriers; }
+
+    // Virtual threads that pinned their carrier since this monitor started, -1 when not running virtual threads
+    public long getPinned() { return pinning == null ? -1 : pinned.get(); }
+    public Duration getPinnedTime() { return Duration.ofNanos(pinnedNanos.get()); }
+
+    // Process CPU time since the previous call as a fraction of all cores, 0..1, or -1 if the JVM does not expose it
+    public double sampleProcessCpu() {
+        long cpu = processCpuNanos();
+        long wall = System.nanoTime();
+        double result = -1;
+        if (cpu >= 0 && lastCpuNanos >= 0 && wall > lastWallNanos) {
+            result = Math.min(1.0, (double) (cpu - lastCpuNanos) / ((double) (wall - lastWallNanos) * cores));
+        }
+        lastCpuNanos = cpu;
+        lastWallNanos = wall;
+        return result;
+    }
+
+    public String describe(int runners) {
+        double u = sampleProcessCpu();
+        String cpu = u < 0 ? "n/a" : String.format("%.0f%%", u * 100);
+        String pins = pinning == null ? ""
+                : String.format(" | Pinned: %,d (%,d ms)", pinned.get(), getPinnedTime().toMillis());
+        return String.format("Runners: %d | Carriers: %d | Process CPU: %s%s | Platform threads: %d",
+                runners, carriers, cpu, pins, threads.getThreadCount());
+    }
+
+    @Override
+    public void close() {
+        if (pinning != null) pinning.close();
+    }
+
+    private long processCpuNanos() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+            return sun.getProcessCpuTime();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,149 @@
+package simulator;
+
+import interfaces.FuelConsumable;
+import interfaces.Maintainable;
+import exceptions.InvalidOperationException;
+import vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Headless discrete-event run of the highway: a virtual clock jumps from event to event instead of sleeping,
+// and each MOVE is one VehicleRunner tick so mileage, fuel and counter totals match the threaded runners.
+// A Maintainable vehicle that falls due gets a MAINTENANCE_DUE event and is serviced there and then.
+public class EventSimulation {
+    public enum EventType { MOVE, FUEL_EXHAUSTED, REFUEL, MAINTENANCE_DUE }
+
+    private record Event(long time, long seq, EventType type, int index) implements Comparable<Event> {
+        @Override
+        public int compareTo(Event o) {
+            int c = Long.compare(time, o.time);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final List<Vehicle> fleet;
+    private final HighwayCounter counter = new HighwayCounter();
+    private final List<VehicleRunner> runners = new ArrayList<>();
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private final long tickMillis;
+    private final int incrementsPerTick;
+    private double initialFuel = 10000;
+    private double refuelAmount = 0;
+    private long refuelDelayMillis = 0;
+    private long seq = 0;
+    private long now = 0;
+    private final long[] eventCounts = new long[EventType.values().length];
+    private boolean[] maintenanceDue;
+
+    public EventSimulation(List<Vehicle> fleet, SyncStrategy strategy, long tickMillis, int incrementsPerTick) {
+        this.fleet = fleet;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.incrementsPerTick = Math.max(1, incrementsPerTick);
+        counter.setStrategy(strategy);
+    }
+
+    // Fuel each vehicle receives before the run, like the GUI's Start button
+    public EventSimulation withInitialFuel(double litres) {
+        this.initialFuel = litres;
+        return this;
+    }
+
+    // Schedules a refuel of the given amount delayMillis after a vehicle runs dry; 0 leaves it stranded
+    public EventSimulation withAutoRefuel(double amount, long delayMillis) {
+        this.refuelAmount = amount;
+        this.refuelDelayMillis = delayMillis;
+        return this;
+    }
+
+    public void run(long durationMillis) {
+        if (runners.isEmpty()) init();
+        long end = now + durationMillis;
+        Event e;
+        while ((e = queue.peek()) != null && e.time() < end) {
+            queue.poll();
+            now = e.time();
+            eventCounts[e.type().ordinal()]++;
+            handle(e);
+        }
+        now = end;
+    }
+
+    private void init() {
+        maintenanceDue = new boolean[fleet.size()];
+        for (int i = 0; i < fleet.size(); i++) {
+            Vehicle v = fleet.get(i);
+            if (v instanceof FuelConsumable fc && initialFuel > 0) {
+                try {
+                    fc.refuel(initialFuel);
+                } catch (InvalidOperationException ignored) {}
+            }
+            runners.add(new VehicleRunner(v, counter, tickMillis, incrementsPerTick));
+            checkMaintenance(i);
+            schedule(now, EventType.MOVE, i);
+        }
+    }
+
+    private void handle(Event e) {
+        VehicleRunner runner = runners.get(e.index());
+        switch (e.type()) {
+            case MOVE -> {
+                runner.tick();
+                checkMaintenance(e.index());
+                if (runner.isOutOfFuel()) {
+                    schedule(now, EventType.FUEL_EXHAUSTED, e.index());
+                } else {
+                    schedule(now + tickMillis, EventType.MOVE, e.index());
+                }
+            }
+            case FUEL_EXHAUSTED -> {
+                if (refuelAmount > 0) schedule(now + refuelDelayMillis, EventType.REFUEL, e.index());
+            }
+            case REFUEL -> {
+                runner.refuel(refuelAmount);
+                if (!runner.isOutOfFuel()) schedule(now + tickMillis, EventType.MOVE, e.index());
+            }
+            // performMaintenance() moves the next-service mileage on, so the vehicle falls due again later
+            case MAINTENANCE_DUE -> {
+                if (fleet.get(e.index()) instanceof Maintainable m) m.performMaintenance();
+                maintenanceDue[e.index()] = false;
+            }
+        }
+    }
+
+    private void checkMaintenance(int index) {
+        if (!maintenanceDue[index] && fleet.get(index) instanceof Maintainable m && m.needsMaintenance()) {
+            maintenanceDue[index] = true;
+            schedule(now, EventType.MAINTENANCE_DUE, index);
+        }
+    }
+
+    private void schedule(long time, EventType type, int index) {
+        queue.add(new Event(time, seq++, type, index));
+    }
+
+    public long getClockMillis() { return now; }
+    public HighwayCounter getCounter() { return counter; }
+    public List<VehicleRunner> getRunners() { return runners; }
+    public long getEventCount(EventType type) { return eventCounts[type.ordinal()]; }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("=== Headless Simulation (%.1f simulated s) ===%n", now / 1000.0));
+        double total = 0;
+        long driven = 0;
+        for (VehicleRunner r : runners) {
+            Vehicle v = r.getVehicle();
+            total += v.getCurrentMileage();
+            driven += r.getLocalDistance();
+            sb.append(String.format("[%s] %s: %.0f km | fuel %.1f%s%n", v.getClass().getSimpleName(), v.getModel(),
+                    v.getCurrentMileage(), r.getFuelLevel(), r.isOutOfFuel() ? " (out)" : ""));
+        }
+        sb.append(String.format("Counter: %d | Distance driven: %d | Total Fleet Mileage: %.0f%n", counter.get(), driven, total));
+        for (EventType t : EventType.values()) {
+            sb.append(t).append(": ").append(eventCounts[t.ordinal()]).append('\n');
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package simulator;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL,
+    // Runners are ticked by a TickScheduler rather than owning a thread
+    POOLED,
+    // Runners are ticked together by a LockstepScheduler and meet at a barrier after every tick
+    LOCKSTEP;
+
+    private static final ThreadFactory VIRTUAL_FACTORY = lookupVirtualFactory();
+
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    // Falls back to platform threads on JDKs without Thread.ofVirtual()
+    public Thread newThread(Runnable task, String name) {
+        Thread t = (this == VIRTUAL && VIRTUAL_FACTORY != null) ? VIRTUAL_FACTORY.newThread(task) : new Thread(task);
+        t.setName(name);
+        return t;
+    }
+
+    // Looked up reflectively so the project still compiles and runs on JDK 17
+    private static ThreadFactory lookupVirtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
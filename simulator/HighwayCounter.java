@@ -1,53 +1,171 @@
 package simulator;
 
+import metrics.CounterBatchEvent;
+import metrics.CounterMetrics;
+import metrics.StrategySwitchEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class HighwayCounter {
+    // Each striped cell is spaced PAD longs apart (128 bytes) so neighbouring cells never share a cache line
+    private static final int PAD = 16;
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+
     private int distance;
+    private final AtomicLong atomicDistance = new AtomicLong();
+    private final AtomicLongArray stripedCells = new AtomicLongArray(STRIPES * PAD);
     private final ReentrantLock lock = new ReentrantLock();
-    private SyncStrategy strategy = SyncStrategy.NONE;
+    // SYNCHRONIZED always takes the monitor, also on virtual threads where a contended one pins the carrier;
+    // CarrierMonitor reports that pinning rather than the counter hiding it behind the lock
+    private volatile SyncStrategy strategy = SyncStrategy.NONE;
+
+    // Upper bound on distance held back by batching runners that has not reached the counter yet
+    private final AtomicLong maxPending = new AtomicLong();
+    private final AtomicLong maxPendingMillis = new AtomicLong();
+    private final AtomicLong batchers = new AtomicLong();
+
+    private volatile CounterMetrics metrics;
+    private volatile RunRecorder recorder;
+
+    // A counter value together with how far behind the fleet it may legitimately be
+    public record Reading(int value, long maxLag, long maxLagMillis) {
+        public boolean consistentWith(long expected) {
+            return value <= expected && value >= expected - maxLag;
+        }
+    }
 
     public void setStrategy(SyncStrategy strategy) {
+        SyncStrategy from = this.strategy;
         this.strategy = strategy;
+        RunRecorder rec = recorder;
+        if (rec != null && from != strategy) rec.strategy(strategy);
+        StrategySwitchEvent event = new StrategySwitchEvent();
+        if (from != strategy && event.shouldCommit()) {
+            event.from = from.name();
+            event.to = strategy.name();
+            event.commit();
+        }
     }
 
+    public SyncStrategy getStrategy() {
+        return strategy;
+    }
+
+    // Null turns instrumentation off; the hot path then pays one volatile read
+    public void setMetrics(CounterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setRecorder(RunRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    // Every strategy writes to its own storage, so switching strategy mid-run keeps the total intact
     public int get() {
-        return distance;
+        long total = distance + atomicDistance.get();
+        for (int i = 0; i < STRIPES; i++) {
+            total += stripedCells.get(i * PAD);
+        }
+        return (int) total;
+    }
+
+    public Reading getWithStaleness() {
+        return new Reading(get(), maxPending.get(), maxPendingMillis.get());
+    }
+
+    void registerBatcher(BatchPolicy policy, long tickMillis) {
+        maxPending.addAndGet(policy.maxIncrements() - 1);
+        maxPendingMillis.accumulateAndGet(policy.maxMillis() + tickMillis, Math::max);
+        batchers.incrementAndGet();
+    }
+
+    void unregisterBatcher(BatchPolicy policy) {
+        maxPending.addAndGet(-(policy.maxIncrements() - 1));
+        if (batchers.decrementAndGet() == 0) maxPendingMillis.set(0);
     }
 
     public void reset() {
         distance = 0;
+        atomicDistance.set(0);
+        for (int i = 0; i < STRIPES; i++) {
+            stripedCells.set(i * PAD, 0);
+        }
     }
 
     public void increment() {
+        add(1);
+    }
+
+    // Commits n units in one contended write
+    public void add(int n) {
+        if (n <= 0) return;
+        CounterMetrics m = metrics;
+        CounterBatchEvent event = new CounterBatchEvent();
+        event.begin();
+        SyncStrategy strategy = this.strategy;
         switch (strategy) {
-            case NONE -> incrementRacy();
-            case SYNCHRONIZED -> incrementSynchronized();
-            case LOCK -> incrementWithLock();
+            case NONE -> addRacy(n);
+            case SYNCHRONIZED -> addSynchronized(n, m);
+            case LOCK -> addWithLock(n, m);
+            case ATOMIC -> atomicDistance.addAndGet(n);
+            case STRIPED -> addStriped(n);
+        }
+        // Counted once written, so an add still in flight never shows up as lost
+        if (m != null) m.added(n);
+        event.end();
+        if (event.shouldCommit()) {
+            event.strategy = strategy.name();
+            event.increments = n;
+            event.commit();
         }
     }
 
-    private void incrementRacy() {
+    private void addRacy(int n) {
         int snapshot = distance;
         if ((snapshot & 3) == 0) {
             try { Thread.sleep(ThreadLocalRandom.current().nextInt(0, 2)); } catch (InterruptedException ignored) {}
         } else {
             Thread.yield();
         }
-        distance = snapshot + 1;
+        distance = snapshot + n;
+    }
+
+    // Lock wait is only timestamped inside the critical section and recorded after release, so the metric does
+    // not lengthen the hold time it measures
+    private void addSynchronized(int n, CounterMetrics m) {
+        long requestedAt = m == null ? 0 : System.nanoTime();
+        long acquiredAt = addMonitor(n, m != null);
+        if (m != null) m.lockWait(acquiredAt - requestedAt);
     }
 
-    private synchronized void incrementSynchronized() {
-        distance++;
+    private synchronized long addMonitor(int n, boolean timed) {
+        long acquiredAt = timed ? System.nanoTime() : 0;
+        distance += n;
+        return acquiredAt;
     }
 
-    private void incrementWithLock() {
+    private void addWithLock(int n, CounterMetrics m) {
+        long requestedAt = m == null ? 0 : System.nanoTime();
+        long acquiredAt;
         lock.lock();
         try {
-            distance++;
+            acquiredAt = m == null ? 0 : System.nanoTime();
+            distance += n;
         } finally {
             lock.unlock();
         }
+        if (m != null) m.lockWait(acquiredAt - requestedAt);
+    }
+
+    private void addStriped(int n) {
+        stripedCells.getAndAdd(stripeIndex() * PAD, n);
+    }
+
+    private static int stripeIndex() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (STRIPES - 1);
     }
 }
\ No newline at end of file
@@ -2,30 +2,66 @@ package simulator;
 
 import vehicles.Vehicle;
 import interfaces.FuelConsumable;
+import interfaces.VehicleListener;
 import exceptions.InvalidOperationException;
+import metrics.FlightRecording;
+import metrics.MetricsRegistry;
 
 import javax.swing.*;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.DoubleAdder;
 
 public class HighwaySimulatorGUI extends JFrame {
     private final JLabel counterLabel = new JLabel("Counter: 0 | Expected: 0");
     private final JTextArea helpArea = new JTextArea();
     private final JComboBox<SyncStrategy> strategyCombo = new JComboBox<>(SyncStrategy.values());
-    private final JPanel vehiclesPanel = new JPanel();
+    private final JCheckBox batchBox = new JCheckBox("Batch");
+    private final JComboBox<ExecutionMode> modeCombo = new JComboBox<>(ExecutionMode.values());
+    private final JLabel carrierLabel = new JLabel(" ");
+    private final VehicleTableModel tableModel;
+    private final JTable table;
 
     private HighwayCounter counter;
     private final List<VehicleRunner> runners = new ArrayList<>();
     private final List<Thread> threads = new ArrayList<>();
-    private final List<JLabel> vehicleLabels = new ArrayList<>();
     private javax.swing.Timer uiTimer;
+    private CarrierMonitor carrierMonitor;
+    private TickScheduler scheduler;
+    private LockstepScheduler lockstep;
     
     private final List<Vehicle> fleet;
+    private final MetricsRegistry metrics;
+    private final FlightRecording recording;
+    private final JToggleButton jfrBtn = new JToggleButton("Record JFR");
+    private final JCheckBox recordBox = new JCheckBox("Record run");
+    private static final int SEGMENTS = 8;
+    private static final long SEGMENT_KM = 25;
+    private final JCheckBox segmentBox = new JCheckBox("Segments");
+    private final JPanel segmentPanel = new JPanel(new GridLayout(1, SEGMENTS, 4, 0));
+    private final JLabel[] segmentLabels = new JLabel[SEGMENTS];
+    private SegmentedHighway highway;
+    private long[] lastSegmentTotals;
+    private long lastSegmentSample;
+    private RunRecorder runRecorder;
+    // Running fleet mileage fed by every vehicle's moves and resets, so a label refresh does not walk the fleet
+    private final DoubleAdder fleetMileage = new DoubleAdder();
+    private final VehicleListener mileageTracker = (v, delta) -> fleetMileage.add(delta);
 
     public HighwaySimulatorGUI(List<Vehicle> fleet) {
+        this(fleet, new MetricsRegistry(), new FlightRecording());
+    }
+
+    // metrics and recording are shared with the CLI (--metrics endpoint, JFR menu option) and outlive this window
+    public HighwaySimulatorGUI(List<Vehicle> fleet, MetricsRegistry metrics, FlightRecording recording) {
         super("Fleet Highway Simulator");
         this.fleet = fleet;
+        this.metrics = metrics;
+        this.recording = recording;
+        this.tableModel = new VehicleTableModel(fleet);
+        for (Vehicle v : fleet) fleetMileage.add(v.attachListener(mileageTracker));
+        this.table = new JTable(tableModel);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setSize(800, 600);
         setLocationRelativeTo(null);
@@ -35,27 +71,49 @@ public class HighwaySimulatorGUI extends JFrame {
         top.add(new JLabel("Sync: "));
         strategyCombo.setSelectedItem(SyncStrategy.NONE);
         top.add(strategyCombo);
+        batchBox.setToolTipText("Commit distance every " + BatchPolicy.DEFAULT.maxIncrements() + " km or "
+                + BatchPolicy.DEFAULT.maxMillis() + " ms instead of once per km");
+        top.add(batchBox);
+        segmentBox.setToolTipText("Split the road into " + SEGMENTS + " segments of " + SEGMENT_KM
+                + " km, each with its own counter");
+        top.add(segmentBox);
+        top.add(new JLabel("Threads: "));
+        modeCombo.setSelectedItem(ExecutionMode.PLATFORM);
+        if (!ExecutionMode.virtualThreadsAvailable()) {
+            modeCombo.setToolTipText("Virtual threads need JDK 21+, VIRTUAL runs on platform threads here");
+        }
+        top.add(modeCombo);
 
         JButton startBtn = new JButton("Start");
         JButton pauseBtn = new JButton("Pause");
         JButton resumeBtn = new JButton("Resume");
         JButton stopBtn = new JButton("Stop");
         JButton resetBtn = new JButton("Reset");
+        JButton refuelBtn = new JButton("Refuel selected (+50)");
         top.add(startBtn);
         top.add(pauseBtn);
         top.add(resumeBtn);
         top.add(stopBtn);
         top.add(resetBtn);
+        top.add(refuelBtn);
+        jfrBtn.setToolTipText("Flight Recorder timeline of ticks, counter contention and refuels, for JDK Mission Control");
+        jfrBtn.setSelected(recording.isRecording());
+        top.add(jfrBtn);
+        recordBox.setToolTipText("Log every move, refuel, pause and strategy switch to a run-*.rlog file for replay");
+        top.add(recordBox);
 
         add(top, BorderLayout.NORTH);
 
-        vehiclesPanel.setLayout(new BoxLayout(vehiclesPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(vehiclesPanel);
+        // JTable only asks the model for the rows it paints, so the cost per frame follows the viewport, not the fleet
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         
         JPanel centerContainer = new JPanel(new BorderLayout());
         JPanel counterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         counterPanel.add(counterLabel);
+        counterPanel.add(carrierLabel);
         centerContainer.add(counterPanel, BorderLayout.NORTH);
         centerContainer.add(scrollPane, BorderLayout.CENTER);
         
@@ -67,6 +125,13 @@ public class HighwaySimulatorGUI extends JFrame {
         helpArea.setWrapStyleWord(true);
         helpArea.setVisible(false);
         bottom.add(helpArea, BorderLayout.CENTER);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segmentLabels[i] = new JLabel(" ", SwingConstants.CENTER);
+            segmentLabels[i].setBorder(BorderFactory.createEtchedBorder());
+            segmentPanel.add(segmentLabels[i]);
+        }
+        segmentPanel.setVisible(false);
+        bottom.add(segmentPanel, BorderLayout.NORTH);
         add(bottom, BorderLayout.SOUTH);
 
         startBtn.addActionListener(e -> startSimulation());
@@ -74,57 +139,58 @@ public class HighwaySimulatorGUI extends JFrame {
         resumeBtn.addActionListener(e -> resumeSimulation());
         stopBtn.addActionListener(e -> stopSimulation());
         resetBtn.addActionListener(e -> resetSimulation());
+        refuelBtn.addActionListener(e -> refuelSelected(50));
+        jfrBtn.addActionListener(e -> toggleRecording());
+        // Segment counters are charged per km driven through them, so segmented runs are never batched
+        segmentBox.addActionListener(e -> {
+            batchBox.setEnabled(!segmentBox.isSelected());
+            if (segmentBox.isSelected()) batchBox.setSelected(false);
+        });
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                stopSimulation();
+                if (carrierMonitor != null) carrierMonitor.close();
+                metrics.clear();
+                for (Vehicle v : fleet) v.detachListener(mileageTracker);
+            }
+        });
         strategyCombo.addActionListener(e -> {
             SyncStrategy s = (SyncStrategy) strategyCombo.getSelectedItem();
             if (counter != null) counter.setStrategy(s);
+            if (highway != null) highway.setStrategy(s);
             updateHelpText();
         });
         
         updateHelpText();
-        initializeVehicleUI();
     }
 
-    private void initializeVehicleUI() {
-        vehiclesPanel.removeAll();
-        vehicleLabels.clear();
-        
-        for (Vehicle v : fleet) {
-            JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT));
-            row.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
-            
-            JLabel label = new JLabel(getVehicleStatusText(v, 0, false));
-            label.setPreferredSize(new Dimension(400, 25));
-            vehicleLabels.add(label);
-            row.add(label);
-            
-            if (v instanceof FuelConsumable) {
-                JButton refuelBtn = new JButton("Refuel (+50)");
-                refuelBtn.addActionListener(e -> {
-                    for (VehicleRunner runner : runners) {
-                         if (runner.getVehicle() == v) {
-                             runner.refuel(50);
-                             break;
-                         }
-                    }
-                });
-                row.add(refuelBtn);
-            }
-            
-            vehiclesPanel.add(row);
+    private void toggleRecording() {
+        if (jfrBtn.isSelected()) {
+            recording.start();
+            return;
+        }
+        java.nio.file.Path file = java.nio.file.Path.of("simulator-" + System.currentTimeMillis() + ".jfr");
+        try {
+            if (recording.stop(file)) carrierLabel.setText("JFR recording saved to " + file.toAbsolutePath());
+        } catch (java.io.IOException ex) {
+            carrierLabel.setText("JFR recording failed: " + ex.getMessage());
         }
-        vehiclesPanel.revalidate();
-        vehiclesPanel.repaint();
     }
-    
-    private String getVehicleStatusText(Vehicle v, double fuelLevel, boolean outOfFuel) {
-        String fuelInfo = "";
-        if (v instanceof FuelConsumable) {
-            fuelInfo = String.format(" | fuel %.1f%s", fuelLevel, outOfFuel ? " (out)" : "");
-        } else {
-            fuelInfo = " | (No Fuel Engine)";
+
+    // Refuels through the runner when the simulation is live so a parked runner wakes up
+    private void refuelSelected(double amount) {
+        for (int row : table.getSelectedRows()) {
+            VehicleRunner runner = tableModel.runnerAt(row);
+            if (runner != null) {
+                runner.refuel(amount);
+            } else if (fleet.get(row) instanceof FuelConsumable fc) {
+                try {
+                    fc.refuel(amount);
+                } catch (InvalidOperationException ignored) {}
+            }
         }
-        return String.format("[%s] %s: %.0f km%s", 
-                v.getClass().getSimpleName(), v.getModel(), v.getCurrentMileage(), fuelInfo);
+        refreshLabels();
     }
 
     private void updateHelpText() {
@@ -135,15 +201,26 @@ public class HighwaySimulatorGUI extends JFrame {
 
     private void startSimulation() {
         if (!threads.isEmpty() && threads.get(0).isAlive()) return;
+        if (scheduler != null && scheduler.isRunning()) return;
+        if (lockstep != null && lockstep.isRunning()) return;
         
+        ExecutionMode mode = (ExecutionMode) modeCombo.getSelectedItem();
         counter = new HighwayCounter();
         counter.setStrategy((SyncStrategy) strategyCombo.getSelectedItem());
+        if (carrierMonitor != null) carrierMonitor.close();
+        carrierMonitor = new CarrierMonitor(mode);
+        metrics.clear();
+        HighwayCounter c = counter;
+        c.setMetrics(metrics.counter(c::get, () -> c.getStrategy().name()));
         
         runners.clear();
         threads.clear();
 
         int incPerTick = strategyCombo.getSelectedItem() == SyncStrategy.NONE ? 250 : 1;
         long tick = 1;
+        scheduler = mode == ExecutionMode.POOLED ? new TickScheduler(tick) : null;
+        lockstep = mode == ExecutionMode.LOCKSTEP
+                ? new LockstepScheduler(tick, Runtime.getRuntime().availableProcessors(), counter) : null;
 
         for (Vehicle v : fleet) {
             if (v instanceof FuelConsumable fc) {
@@ -152,30 +229,91 @@ public class HighwaySimulatorGUI extends JFrame {
                 } catch (InvalidOperationException ignored) {}
             }
 
-            VehicleRunner runner = new VehicleRunner(v, counter, tick, incPerTick);
+            BatchPolicy batch = batchBox.isSelected() && !segmentBox.isSelected() ? BatchPolicy.DEFAULT : null;
+            VehicleRunner runner = new VehicleRunner(v, counter, tick, incPerTick, batch);
+            runner.setMetrics(metrics.runner(v.getId()));
             runners.add(runner);
-            
-            Thread t = new Thread(runner, v.getModel() + "Thread");
-            threads.add(t);
-            t.start();
+
+            if (scheduler != null) {
+                scheduler.add(runner);
+                continue;
+            }
+            if (lockstep != null) {
+                lockstep.add(runner);
+                continue;
+            }
+            threads.add(mode.newThread(runner, v.getModel() + "Thread"));
         }
+        // The recorder snapshots the fleet and hooks the runners, so it has to be in place before any of them moves
+        if (recordBox.isSelected()) startRecording();
+        highway = null;
+        if (segmentBox.isSelected()) {
+            highway = new SegmentedHighway(SEGMENTS, SEGMENT_KM);
+            highway.setStrategy(counter.getStrategy());
+            highway.enterAll(runners);
+            if (lockstep != null) lockstep.withTotal(highway::total);
+            lastSegmentTotals = highway.totals();
+            lastSegmentSample = System.nanoTime();
+        }
+        segmentPanel.setVisible(highway != null);
+        threads.forEach(Thread::start);
+        if (scheduler != null) scheduler.start();
+        if (lockstep != null) lockstep.start();
+        tableModel.setRunners(List.copyOf(runners));
 
         if (uiTimer != null) uiTimer.stop();
         uiTimer = new javax.swing.Timer(250, e -> refreshLabels());
         uiTimer.start();
     }
 
+    private void startRecording() {
+        java.nio.file.Path file = java.nio.file.Path.of("run-" + System.currentTimeMillis() + ".rlog");
+        try {
+            runRecorder = RunRecorder.start(file, runners, counter);
+            recordBox.setText("Recording " + file);
+        } catch (java.io.IOException ex) {
+            carrierLabel.setText("Run recording failed: " + ex.getMessage());
+        }
+    }
+
+    private void stopRecording() {
+        if (runRecorder == null) return;
+        recordBox.setText("Record run");
+        try {
+            runRecorder.close();
+            carrierLabel.setText(String.format("Run log: %,d events", runRecorder.getEvents()));
+        } catch (java.io.IOException ex) {
+            carrierLabel.setText("Run recording failed: " + ex.getMessage());
+        }
+        runRecorder = null;
+    }
+
+    // In lockstep the whole fleet stops and restarts at a barrier, between the same two ticks
     private void pauseSimulation() {
-        runners.forEach(VehicleRunner::pause);
+        if (lockstep != null) lockstep.pause();
+        else runners.forEach(VehicleRunner::pause);
     }
 
     private void resumeSimulation() {
-        runners.forEach(VehicleRunner::resume);
+        if (lockstep != null) lockstep.resume();
+        else runners.forEach(VehicleRunner::resume);
     }
 
     private void stopSimulation() {
         if (uiTimer != null) uiTimer.stop();
         runners.forEach(VehicleRunner::stop);
+        if (scheduler != null) scheduler.stop();
+        if (lockstep != null) lockstep.stop();
+        // The recorder's END has to see every move, so wait for the runner threads to finish their last tick
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        stopRecording();
     }
 
     private void resetSimulation() {
@@ -190,38 +328,77 @@ public class HighwaySimulatorGUI extends JFrame {
         
         runners.clear();
         threads.clear();
+        metrics.clear();
+        highway = null;
+        segmentPanel.setVisible(false);
+        tableModel.setRunners(List.of());
+        carrierLabel.setText(" ");
         
         refreshLabels();
     }
 
     private void refreshLabels() {
+        refreshVisibleRows();
         if (runners.isEmpty()) {
-            for (int i = 0; i < fleet.size(); i++) {
-                Vehicle v = fleet.get(i);
-                JLabel label = vehicleLabels.get(i);
-                double fuelLevel = (v instanceof FuelConsumable fc) ? fc.getFuelLevel() : 0;
-                label.setText(getVehicleStatusText(v, fuelLevel, false));
-            }
             counterLabel.setText("Counter: 0 | Total Fleet Mileage: 0");
             return;
         }
         
-        double totalMileage = 0;
-        
-        for (int i = 0; i < runners.size(); i++) {
-            VehicleRunner runner = runners.get(i);
-            JLabel label = vehicleLabels.get(i);
-            
-            label.setText(getVehicleStatusText(runner.getVehicle(), runner.getFuelLevel(), runner.isOutOfFuel()));
-            
-            totalMileage += runner.getMileage();
+        if (lockstep != null) {
+            refreshLockstep();
+            return;
         }
+        double totalMileage = fleetMileage.sum();
 
         int expected = (int) totalMileage;
-        int actual = counter.get();
+        // Segmented runs count on the segments only, and the segments are never batched
+        HighwayCounter.Reading reading = highway == null ? counter.getWithStaleness()
+                : new HighwayCounter.Reading((int) highway.total(), 0, 0);
+        int actual = reading.value();
         
-        String extra = (strategyCombo.getSelectedItem() == SyncStrategy.NONE && actual != expected) ? " | MISMATCH" : "";
+        String extra = (strategyCombo.getSelectedItem() == SyncStrategy.NONE && !reading.consistentWith(expected)) ? " | MISMATCH" : "";
+        if (reading.maxLag() > 0) {
+            extra = " | batched (<= " + reading.maxLag() + " km, " + reading.maxLagMillis() + " ms behind)" + extra;
+        }
         counterLabel.setText("Counter: " + actual + " | Total Fleet Mileage: " + (int)totalMileage + extra);
+        if (carrierMonitor != null) carrierLabel.setText(carrierMonitor.describe(runners.size()));
+        refreshSegments();
+    }
+
+    // Both sides of the check come from the same barrier, so a mismatch is a real lost update, not a torn read
+    private void refreshLockstep() {
+        LockstepScheduler.Snapshot s = lockstep.getSnapshot();
+        String check = s.consistent() ? "consistent" : "MISMATCH (" + (s.expected() - s.counted()) + " lost)";
+        counterLabel.setText(String.format("Counter: %d | Expected: %d at tick %d | %s", s.counted(), s.expected(),
+                s.tick(), check));
+        carrierLabel.setText(lockstep.describe());
+        refreshSegments();
+    }
+
+    // Distance counted per segment since the last refresh, as km/s, with how many vehicles are on each
+    private void refreshSegments() {
+        SegmentedHighway h = highway;
+        if (h == null) return;
+        long now = System.nanoTime();
+        long[] totals = h.totals();
+        double seconds = Math.max(1e-3, (now - lastSegmentSample) / 1e9);
+        List<SegmentedHighway.Segment> segments = h.getSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentedHighway.Segment seg = segments.get(i);
+            segmentLabels[i].setText(String.format("<html><center>km %d-%d<br>%,.0f km/s<br>%d vehicles</center></html>",
+                    seg.getStartKm(), seg.getEndKm(), (totals[i] - lastSegmentTotals[i]) / seconds, seg.getOccupancy()));
+        }
+        lastSegmentTotals = totals;
+        lastSegmentSample = now;
+    }
+    
+    private void refreshVisibleRows() {
+        Rectangle view = table.getVisibleRect();
+        int first = table.rowAtPoint(view.getLocation());
+        if (first < 0) return;
+        int last = table.rowAtPoint(new Point(view.x, view.y + view.height - 1));
+        if (last < 0) last = tableModel.getRowCount() - 1;
+        tableModel.refreshVisible(first, last);
     }
     
     public static void main(String[] args) {
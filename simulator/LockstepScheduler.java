@@ -0,0 +1,243 @@
+package simulator;
+
+import metrics.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Global-tick mode: worker threads each advance their slice of the runners by one tick, then meet at a Phaser.
+// The last to arrive runs the aggregator in onAdvance while every other worker is held at the barrier, so the
+// Snapshot it publishes (counter, expected distance, active runners) is taken at one instant between ticks.
+//
+// Pause and resume act at the barrier: a pause is picked up by the aggregator and every worker stops after
+// the same tick. Past TIER workers the barrier is a tree of phasers so arrivals do not all hit one state word.
+public class LockstepScheduler {
+    private static final int TIER = 32;
+
+    // counted may trail expected by at most maxLag while runners batch their increments
+    public record Snapshot(long tick, long counted, long expected, long maxLag, int active,
+                           long slowestTickNanos, String straggler, long slowestWorkerNanos, long fastestWorkerNanos) {
+        public boolean consistent() { return counted <= expected && counted >= expected - maxLag; }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, "-", 0, 0);
+
+    private final long periodNanos;
+    private final int threads;
+    private final HighwayCounter counter;
+    private LongSupplier total;
+    private final List<VehicleRunner> runners = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final Histogram barrierWait = new Histogram();
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private final Condition resumed = pauseLock.newCondition();
+    private Phaser root;
+    private volatile boolean running = false;
+    private volatile boolean pauseRequested = false; // written under pauseLock
+    private volatile boolean stopRequested = false;
+    private volatile boolean holding = false;       // written under pauseLock, read by every worker after the barrier
+    private volatile long nextDeadline;             // when the next tick starts, set by the aggregator or resume()
+    private volatile Snapshot snapshot = EMPTY;
+
+    public LockstepScheduler(long tickMillis, int threads, HighwayCounter counter) {
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.threads = Math.max(1, threads);
+        this.counter = counter;
+    }
+
+    // Where the aggregator reads the fleet's counted distance when it is not the counter's, e.g. a SegmentedHighway
+    public LockstepScheduler withTotal(LongSupplier total) {
+        this.total = total;
+        return this;
+    }
+
+    public synchronized void add(VehicleRunner runner) {
+        if (running) throw new IllegalStateException("Cannot add runners to a started scheduler");
+        runners.add(runner);
+    }
+
+    public synchronized void start() {
+        if (running || runners.isEmpty()) return;
+        running = true;
+        root = new Phaser() {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties) {
+                return aggregate(phase) || registeredParties == 0;
+            }
+        };
+        int n = Math.min(threads, runners.size());
+        Phaser tier = root;
+        for (int i = 0; i < n; i++) {
+            if (n > TIER && i % TIER == 0) tier = new Phaser(root);
+            tier.register();
+            Worker w = new Worker(tier, runners.subList(i * runners.size() / n, (i + 1) * runners.size() / n), i);
+            workers.add(w);
+        }
+        runners.forEach(VehicleRunner::open);
+        nextDeadline = System.nanoTime();
+        for (Worker w : workers) w.thread.start();
+    }
+
+    // Stops at the next barrier, waits for the workers and flushes the runners' batched distance
+    public void stop() {
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+        }
+        stopRequested = true;
+        resume();
+        for (Worker w : workers) {
+            try {
+                w.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        runners.forEach(VehicleRunner::close);
+    }
+
+    public void pause() {
+        pauseLock.lock();
+        try {
+            pauseRequested = true;
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    public void resume() {
+        pauseLock.lock();
+        try {
+            pauseRequested = false;
+            holding = false;
+            nextDeadline = System.nanoTime();
+            resumed.signalAll();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    public boolean isRunning() { return running; }
+    public boolean isPaused() { return holding; }
+    public int getWorkers() { return workers.size(); }
+    public Snapshot getSnapshot() { return snapshot; }
+    public Histogram.Snapshot getBarrierWait() { return barrierWait.snapshot(); }
+
+    public String describe() {
+        Snapshot s = snapshot;
+        Histogram.Snapshot w = barrierWait.snapshot();
+        return String.format("Tick %d%s | barrier wait p50 %d us, p99 %d us, max %d us | straggler %s (%d us, workers %d-%d us)",
+                s.tick(), holding ? " (paused)" : "", w.p50() / 1000, w.p99() / 1000, w.max() / 1000, s.straggler(),
+                s.slowestTickNanos() / 1000, s.fastestWorkerNanos() / 1000, s.slowestWorkerNanos() / 1000);
+    }
+
+    // Runs once per tick in the last worker to arrive, while all others wait; true ends the run
+    private boolean aggregate(int phase) {
+        long expected = 0;
+        int active = 0;
+        long slowestTick = 0;
+        String straggler = "-";
+        long slowestWorker = 0;
+        long fastestWorker = Long.MAX_VALUE;
+        for (Worker w : workers) {
+            expected += w.distance;
+            active += w.active;
+            slowestWorker = Math.max(slowestWorker, w.workNanos);
+            fastestWorker = Math.min(fastestWorker, w.workNanos);
+            if (w.slowestTickNanos > slowestTick && w.slowestRunner != null) {
+                slowestTick = w.slowestTickNanos;
+                straggler = w.slowestRunner.getVehicle().getId();
+            }
+        }
+        HighwayCounter.Reading r = counter.getWithStaleness();
+        long counted = total != null ? total.getAsLong() : r.value();
+        snapshot = new Snapshot(phase + 1L, counted, expected, r.maxLag(), active, slowestTick, straggler,
+                slowestWorker, fastestWorker == Long.MAX_VALUE ? 0 : fastestWorker);
+
+        // Read and set under pauseLock, so a resume() in between cannot be undone by a stale pauseRequested
+        pauseLock.lock();
+        try {
+            holding = pauseRequested;
+            // A late tick starts the next one straight away rather than bunching up ticks to catch up
+            nextDeadline = Math.max(nextDeadline + periodNanos, System.nanoTime());
+        } finally {
+            pauseLock.unlock();
+        }
+        return stopRequested;
+    }
+
+    private final class Worker implements Runnable {
+        final Phaser phaser;
+        final List<VehicleRunner> slice;
+        final Thread thread;
+        // Written before arriving, read by the aggregator
+        long distance;
+        int active;
+        long workNanos;
+        long slowestTickNanos;
+        VehicleRunner slowestRunner;
+
+        Worker(Phaser phaser, List<VehicleRunner> slice, int index) {
+            this.phaser = phaser;
+            this.slice = slice;
+            this.thread = new Thread(this, "Lockstep-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                long start = System.nanoTime();
+                long km = 0;
+                int n = 0;
+                long slowest = 0;
+                VehicleRunner slow = null;
+                for (VehicleRunner r : slice) {
+                    if (r.isActive()) {
+                        long t = System.nanoTime();
+                        r.tick();
+                        t = System.nanoTime() - t;
+                        if (t > slowest) {
+                            slowest = t;
+                            slow = r;
+                        }
+                        n++;
+                    }
+                    km += r.getLocalDistance();
+                }
+                long arrived = System.nanoTime();
+                distance = km;
+                active = n;
+                workNanos = arrived - start;
+                slowestTickNanos = slowest;
+                slowestRunner = slow;
+
+                int phase = phaser.arriveAndAwaitAdvance();
+                barrierWait.record(System.nanoTime() - arrived);
+                if (phase < 0 || phaser.isTerminated()) return;
+                if (holding) awaitResume();
+                long wait;
+                while ((wait = nextDeadline - System.nanoTime()) > 0 && !stopRequested) {
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+        }
+
+        // Held after the barrier, so the next tick starts for every worker together once resumed; a stop while
+        // paused still needs one more barrier for the aggregator to end the phaser
+        private void awaitResume() {
+            pauseLock.lock();
+            try {
+                while (holding) resumed.awaitUninterruptibly();
+            } finally {
+                pauseLock.unlock();
+            }
+        }
+    }
+}
\ No newline at end of file
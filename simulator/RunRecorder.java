@@ -0,0 +1,303 @@
+package simulator;
+
+import vehicles.Vehicle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Binary log of everything that drives a threaded run, so RunReplay can re-drive the same vehicles exactly.
+//
+// Header: MAGIC (int), VERSION (byte), starting strategy (byte), vehicle count (varint), then each vehicle's
+// toCSV line (varint length + UTF-8) as it was when recording started. Events follow: MOVE index requested km,
+// REFUEL index amount (double), PAUSE index, RESUME index, STRATEGY ordinal, and a closing END counter expected
+// nanos. Indexes and counts are varints, so a MOVE is usually 4-6 bytes.
+//
+// Each runner appends to its own lane buffer, so recording adds no fleet-wide lock to the tick. A full lane goes
+// to the writer as one chunk: a vehicle's events stay in the order they happened, while different vehicles'
+// events interleave chunk by chunk. A STRATEGY switch first hands over every lane, so it follows all events
+// recorded before it.
+public class RunRecorder implements AutoCloseable {
+    public static final int MAGIC = 0x52554E4C;
+    public static final byte VERSION = 1;
+
+    static final byte OP_MOVE = 1;
+    static final byte OP_REFUEL = 2;
+    static final byte OP_PAUSE = 3;
+    static final byte OP_RESUME = 4;
+    static final byte OP_STRATEGY = 5;
+    static final byte OP_END = 6;
+
+    private static final int BUFFER = 1 << 16;
+    private static final int LANE_BUFFER = 1024;
+    private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+    // One runner's events. Its runner and refuels or pauses from the GUI thread append here; the lock is only
+    // contended when those meet, and it is a j.u.c lock so recording does not pin virtual threads' carriers.
+    private static final class Lane {
+        final ReentrantLock lock = new ReentrantLock();
+        ByteBuffer buf;         // guarded by lock, allocated on the first event
+        long events;            // guarded by lock
+        boolean closed;         // guarded by lock
+    }
+
+    private final FileChannel channel;
+    private final List<VehicleRunner> runners;
+    private final Lane[] lanes;
+    private final HighwayCounter counter;
+    // Full chunks wait here for the writer thread; a bounded queue makes a slow disk push back on the runners
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(1024);
+    private final Thread writer;
+    private final long startNanos = System.nanoTime();
+    // Serialises the fleet-wide events, STRATEGY and END, with each other
+    private final ReentrantLock globalLock = new ReentrantLock();
+    private long globalEvents = 0;                          // guarded by globalLock
+    private boolean closed = false;                         // guarded by globalLock
+    private volatile IOException failure;
+
+    private RunRecorder(FileChannel channel, List<VehicleRunner> runners, HighwayCounter counter) {
+        this.channel = channel;
+        this.runners = runners;
+        this.counter = counter;
+        this.lanes = new Lane[runners.size()];
+        for (int i = 0; i < lanes.length; i++) lanes[i] = new Lane();
+        this.writer = new Thread(this::writeLoop, "RunRecorderWriter");
+        writer.setDaemon(true);
+    }
+
+    // Snapshots the runners' vehicles into the header and hooks the runners and counter; call before they start
+    public static RunRecorder start(Path file, List<VehicleRunner> runners, HighwayCounter counter) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        RunRecorder r = new RunRecorder(ch, List.copyOf(runners), counter);
+        try {
+            r.writeHeader();
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        r.writer.start();
+        for (int i = 0; i < r.runners.size(); i++) r.runners.get(i).setRecorder(r, i);
+        counter.setRecorder(r);
+        return r;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(BUFFER);
+        h.putInt(MAGIC).put(VERSION).put((byte) counter.getStrategy().ordinal());
+        writeVarint(h, runners.size());
+        for (VehicleRunner runner : runners) {
+            Vehicle v = runner.getVehicle();
+            byte[] line = v.toCSV().getBytes(StandardCharsets.UTF_8);
+            if (h.remaining() < line.length + 5) {
+                drain(h);
+                if (h.capacity() < line.length + 5) h = ByteBuffer.allocate(line.length + 5);
+            }
+            writeVarint(h, line.length);
+            h.put(line);
+        }
+        drain(h);
+    }
+
+    private void drain(ByteBuffer h) throws IOException {
+        h.flip();
+        while (h.hasRemaining()) channel.write(h);
+        h.clear();
+    }
+
+    void move(int index, int requested, int km) {
+        Lane lane = lanes[index];
+        lane.lock.lock();
+        try {
+            ByteBuffer b = ensure(lane, 16);
+            if (b == null) return;
+            b.put(OP_MOVE);
+            writeVarint(b, index);
+            writeVarint(b, requested);
+            writeVarint(b, km);
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    void refuel(int index, double amount) {
+        Lane lane = lanes[index];
+        lane.lock.lock();
+        try {
+            ByteBuffer b = ensure(lane, 14);
+            if (b == null) return;
+            b.put(OP_REFUEL);
+            writeVarint(b, index);
+            b.putDouble(amount);
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    void paused(int index, boolean paused) {
+        Lane lane = lanes[index];
+        lane.lock.lock();
+        try {
+            ByteBuffer b = ensure(lane, 6);
+            if (b == null) return;
+            b.put(paused ? OP_PAUSE : OP_RESUME);
+            writeVarint(b, index);
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    void strategy(SyncStrategy strategy) {
+        globalLock.lock();
+        try {
+            if (closed) return;
+            handAllLanes(false);
+            globalEvents++;
+            ByteBuffer b = ByteBuffer.allocate(2);
+            b.put(OP_STRATEGY).put((byte) strategy.ordinal());
+            hand(b);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    // The lane's buffer with room for one more event, handing a full one to the writer; null once the log is closed
+    private ByteBuffer ensure(Lane lane, int bytes) {
+        if (lane.closed) return null;
+        lane.events++;
+        if (lane.buf == null) {
+            lane.buf = ByteBuffer.allocate(LANE_BUFFER);
+        } else if (lane.buf.remaining() < bytes) {
+            hand(lane.buf);
+            lane.buf = ByteBuffer.allocate(LANE_BUFFER);
+        }
+        return lane.buf;
+    }
+
+    // Sends every lane's pending events to the writer, so whatever is handed next follows them in the log
+    private void handAllLanes(boolean close) {
+        for (Lane lane : lanes) {
+            lane.lock.lock();
+            try {
+                if (lane.buf != null && lane.buf.position() > 0) {
+                    hand(lane.buf);
+                    lane.buf = null;
+                }
+                if (close) lane.closed = true;
+            } finally {
+                lane.lock.unlock();
+            }
+        }
+    }
+
+    private void hand(ByteBuffer b) {
+        b.flip();
+        try {
+            full.put(b);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Lane chunks are small, so write whatever has queued up in one gathering write
+    private void writeLoop() {
+        List<ByteBuffer> batch = new ArrayList<>();
+        try {
+            for (boolean eof = false; !eof; ) {
+                batch.add(full.take());
+                full.drainTo(batch);
+                // EOF is the last buffer ever handed over; compared by identity, as an empty buffer equals it
+                if (batch.get(batch.size() - 1) == EOF) {
+                    batch.remove(batch.size() - 1);
+                    eof = true;
+                }
+                if (failure == null) {
+                    try {
+                        ByteBuffer[] bufs = batch.toArray(new ByteBuffer[0]);
+                        while (bufs.length > 0 && bufs[bufs.length - 1].hasRemaining()) channel.write(bufs);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    public long getEvents() {
+        long n;
+        globalLock.lock();
+        try {
+            n = globalEvents;
+        } finally {
+            globalLock.unlock();
+        }
+        for (Lane lane : lanes) {
+            lane.lock.lock();
+            try {
+                n += lane.events;
+            } finally {
+                lane.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    // Unhooks the runners and counter, appends END with the counter and the distance the runners covered, and
+    // waits for the log to reach the file. Stop the runners first so END reflects the finished run.
+    @Override
+    public void close() throws IOException {
+        counter.setRecorder(null);
+        for (VehicleRunner runner : runners) runner.setRecorder(null, 0);
+        long expected = 0;
+        for (VehicleRunner runner : runners) expected += runner.getLocalDistance();
+        globalLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            handAllLanes(true);
+            globalEvents++;
+            ByteBuffer b = ByteBuffer.allocate(31);
+            b.put(OP_END);
+            writeVarLong(b, counter.get());
+            writeVarLong(b, expected);
+            writeVarLong(b, System.nanoTime() - startNanos);
+            hand(b);
+            try {
+                full.put(EOF);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            globalLock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) throw failure;
+    }
+
+    static void writeVarint(ByteBuffer b, int v) {
+        writeVarLong(b, v & 0xFFFFFFFFL);
+    }
+
+    static void writeVarLong(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,350 @@
+package simulator;
+
+import fleet.VehicleFactory;
+import interfaces.FuelConsumable;
+import vehicles.Vehicle;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Re-drives the vehicles of a RunRecorder log at full speed, with no sleeps and no timing of its own.
+//
+// Vehicles are rebuilt from the header and every MOVE is re-applied with the recorded request; a MOVE that now
+// covers a different distance is a divergence, which means something other than the log changed the vehicle.
+// With one thread the events are applied in log order. With more, each vehicle's events go to one worker in log
+// order, so every vehicle ends in exactly the same state; only the interleaving between vehicles differs.
+public class RunReplay {
+    private static final int BATCH = 1024;
+    private static final long[] DONE = new long[0];
+
+    public record Result(long events, long moves, long km, long refuels, long pauses, long strategySwitches,
+                         long divergences, long firstDivergence, long recordedCounter, long recordedDistance,
+                         long recordedNanos, long replayedCounter, long replayNanos) {
+        // Increments the recorded run's counter dropped, e.g. to NONE's races
+        public long lostUpdates() { return recordedDistance - recordedCounter; }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Events: %,d (moves %,d, refuels %,d, pauses/resumes %,d, strategy switches %,d)%n",
+                    events, moves, refuels, pauses, strategySwitches));
+            sb.append(String.format("Distance: %,d km replayed, %,d km recorded%n", km, recordedDistance));
+            sb.append(String.format("Recorded counter: %,d (%,d lost updates) | replayed counter: %,d%n",
+                    recordedCounter, lostUpdates(), replayedCounter));
+            sb.append(divergences == 0 ? "No divergences\n"
+                    : String.format("Divergences: %,d, first at event %,d%n", divergences, firstDivergence));
+            sb.append(String.format("Replay: %.3f s for a %.3f s run%n", replayNanos / 1e9, recordedNanos / 1e9));
+            return sb.toString();
+        }
+    }
+
+    private final Path file;
+    private final SyncStrategy initialStrategy;
+    private final List<Vehicle> fleet;
+    private final long eventsStart;
+    private int threads = 1;
+    private HighwayCounter counter;
+    private boolean replayed = false;
+
+    private RunReplay(Path file, SyncStrategy initialStrategy, List<Vehicle> fleet, long eventsStart) {
+        this.file = file;
+        this.initialStrategy = initialStrategy;
+        this.fleet = fleet;
+        this.eventsStart = eventsStart;
+    }
+
+    public static RunReplay open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            In in = new In(ch);
+            if (in.need(6) < 6 || in.buf.getInt() != RunRecorder.MAGIC) {
+                throw new IOException(file + " is not a run log");
+            }
+            byte version = in.buf.get();
+            if (version != RunRecorder.VERSION) throw new IOException("Unsupported run log version " + version);
+            SyncStrategy strategy = strategy(in.buf.get());
+            int count = in.varint();
+            if (count < 0) throw new IOException("Corrupt run log: vehicle count " + count);
+            List<Vehicle> fleet = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int len = in.varint();
+                if (in.need(len) < len) throw new EOFException("Run log header is truncated");
+                byte[] line = new byte[len];
+                in.buf.get(line);
+                try {
+                    fleet.add(VehicleFactory.createFromCSV(new String(line, StandardCharsets.UTF_8)));
+                } catch (Exception e) {
+                    throw new IOException("Bad vehicle " + i + " in run log header: " + e.getMessage(), e);
+                }
+            }
+            return new RunReplay(file, strategy, fleet, in.position());
+        }
+    }
+
+    // Workers to spread the vehicles over; 1 applies events strictly in log order
+    public RunReplay withThreads(int threads) { this.threads = Math.max(1, threads); return this; }
+
+    // Also pushes every move through a HighwayCounter that follows the recorded strategy switches, to reproduce
+    // the counter contention of the original run; NONE sleeps on its racy path here just as it did then
+    public RunReplay withCounter() {
+        this.counter = new HighwayCounter();
+        counter.setStrategy(initialStrategy);
+        return this;
+    }
+
+    public List<Vehicle> getFleet() { return fleet; }
+    public SyncStrategy getInitialStrategy() { return initialStrategy; }
+
+    // Replays the log once; the vehicles are left in their final replayed state
+    public Result run() throws IOException {
+        if (replayed) throw new IllegalStateException("A RunReplay drives its vehicles once; open the log again");
+        replayed = true;
+        long start = System.nanoTime();
+        Tally total = new Tally();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ch.position(eventsStart);
+            In in = new In(ch);
+            if (threads == 1) {
+                decode(in, total, (seq, op, index, a, b) -> apply(total, seq, op, index, a, b));
+            } else {
+                runParallel(in, total);
+            }
+        }
+        long replayed = counter != null ? counter.get() : total.km;
+        return new Result(total.events, total.moves, total.km, total.refuels, total.pauses, total.switches,
+                total.divergences, total.firstDivergence, total.recordedCounter, total.recordedDistance,
+                total.recordedNanos, replayed, System.nanoTime() - start);
+    }
+
+    private void runParallel(In in, Tally total) throws IOException {
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker w = new Worker();
+            w.thread = new Thread(w, "RunReplay-" + i);
+            w.thread.setDaemon(true);
+            w.thread.start();
+            workers.add(w);
+        }
+        boolean done = false;
+        try {
+            decode(in, total, (seq, op, index, a, b) -> workers.get(index % threads).add(seq, op, index, a, b));
+            for (Worker w : workers) w.finish();
+            for (Worker w : workers) {
+                w.thread.join();
+                w.check();
+                total.merge(w.tally);
+            }
+            done = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying", e);
+        } finally {
+            // On any failure the remaining workers would wait for batches that never come
+            if (!done) for (Worker w : workers) w.thread.interrupt();
+        }
+    }
+
+    private interface Sink {
+        void accept(long seq, byte op, int index, long a, long b) throws IOException;
+    }
+
+    // Reads events up to END; strategy switches are applied here, everything per vehicle goes to the sink
+    private void decode(In in, Tally total, Sink sink) throws IOException {
+        for (long seq = 0; ; seq++) {
+            if (in.need(1) < 1) throw new EOFException("Run log ends without END after " + seq + " events");
+            byte op = in.buf.get();
+            switch (op) {
+                case RunRecorder.OP_MOVE -> sink.accept(seq, op, vehicle(in.varint(), seq), in.varint(), in.varint());
+                case RunRecorder.OP_REFUEL -> {
+                    int index = vehicle(in.varint(), seq);
+                    if (in.need(8) < 8) throw new EOFException("Run log is truncated");
+                    sink.accept(seq, op, index, Double.doubleToRawLongBits(in.buf.getDouble()), 0);
+                }
+                case RunRecorder.OP_PAUSE, RunRecorder.OP_RESUME -> sink.accept(seq, op, vehicle(in.varint(), seq), 0, 0);
+                case RunRecorder.OP_STRATEGY -> {
+                    if (in.need(1) < 1) throw new EOFException("Run log is truncated");
+                    SyncStrategy s = strategy(in.buf.get());
+                    if (counter != null) counter.setStrategy(s);
+                    total.events++;
+                    total.switches++;
+                }
+                case RunRecorder.OP_END -> {
+                    total.recordedCounter = in.varLong();
+                    total.recordedDistance = in.varLong();
+                    total.recordedNanos = in.varLong();
+                    total.events++;
+                    return;
+                }
+                default -> throw new IOException("Corrupt run log: unknown event " + op + " at event " + seq);
+            }
+        }
+    }
+
+    private int vehicle(int index, long seq) throws IOException {
+        if (index < 0 || index >= fleet.size()) {
+            throw new IOException("Corrupt run log: vehicle " + index + " at event " + seq + " is not in the header");
+        }
+        return index;
+    }
+
+    private static SyncStrategy strategy(byte ordinal) throws IOException {
+        SyncStrategy[] all = SyncStrategy.values();
+        if (ordinal < 0 || ordinal >= all.length) throw new IOException("Corrupt run log: unknown strategy " + ordinal);
+        return all[ordinal];
+    }
+
+    private void apply(Tally t, long seq, byte op, int index, long a, long b) {
+        t.events++;
+        Vehicle v = fleet.get(index);
+        switch (op) {
+            case RunRecorder.OP_MOVE -> {
+                int km = (int) v.advance(a, 1);
+                t.moves++;
+                t.km += km;
+                if (counter != null) counter.add(km);
+                if (km != b) t.diverged(seq);
+            }
+            case RunRecorder.OP_REFUEL -> {
+                t.refuels++;
+                if (v instanceof FuelConsumable fc) {
+                    try {
+                        fc.refuel(Double.longBitsToDouble(a));
+                    } catch (Exception e) {
+                        t.diverged(seq);
+                    }
+                }
+            }
+            default -> t.pauses++;
+        }
+    }
+
+    private static final class Tally {
+        long events, moves, km, refuels, pauses, switches, divergences;
+        long firstDivergence = -1;
+        long recordedCounter, recordedDistance, recordedNanos;
+
+        void diverged(long seq) {
+            if (divergences++ == 0 || seq < firstDivergence) firstDivergence = seq;
+        }
+
+        void merge(Tally o) {
+            events += o.events;
+            moves += o.moves;
+            km += o.km;
+            refuels += o.refuels;
+            pauses += o.pauses;
+            if (o.divergences > 0 && (divergences == 0 || o.firstDivergence < firstDivergence)) {
+                firstDivergence = o.firstDivergence;
+            }
+            divergences += o.divergences;
+        }
+    }
+
+    // Events travel to workers in batches of (seq, op << 32 | index, a, b) so the decoder does not allocate per event
+    private final class Worker implements Runnable {
+        final BlockingQueue<long[]> queue = new ArrayBlockingQueue<>(8);
+        final Tally tally = new Tally();
+        long[] batch = new long[BATCH * 4];
+        int size = 0;
+        Thread thread;
+        volatile Throwable failure;
+
+        void add(long seq, byte op, int index, long a, long b) throws IOException {
+            int i = size * 4;
+            batch[i] = seq;
+            batch[i + 1] = (long) op << 32 | index;
+            batch[i + 2] = a;
+            batch[i + 3] = b;
+            if (++size == BATCH) send(batch);
+        }
+
+        void finish() throws IOException {
+            if (size > 0) send(Arrays.copyOf(batch, size * 4));
+            send(DONE);
+        }
+
+        // Polls rather than blocking in put, so a worker that died leaves the decoder an error instead of a hang
+        private void send(long[] b) throws IOException {
+            check();
+            try {
+                while (!queue.offer(b, 50, TimeUnit.MILLISECONDS)) {
+                    check();
+                    if (!thread.isAlive()) throw new IOException(thread.getName() + " stopped");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying", e);
+            }
+            batch = new long[BATCH * 4];
+            size = 0;
+        }
+
+        void check() throws IOException {
+            Throwable f = failure;
+            if (f != null) throw new IOException(thread.getName() + " failed: " + f, f);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (long[] b; (b = queue.take()) != DONE; ) {
+                    for (int i = 0; i < b.length; i += 4) {
+                        apply(tally, b[i], (byte) (b[i + 1] >>> 32), (int) b[i + 1], b[i + 2], b[i + 3]);
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+    }
+
+    // Refilling read buffer over the log file
+    private static final class In {
+        final FileChannel ch;
+        final ByteBuffer buf = ByteBuffer.allocate(1 << 16).flip();
+        long consumedBefore;
+
+        In(FileChannel ch) throws IOException {
+            this.ch = ch;
+            this.consumedBefore = ch.position();
+        }
+
+        // Makes up to n bytes available and returns how many are
+        int need(int n) throws IOException {
+            if (buf.remaining() >= n) return buf.remaining();
+            consumedBefore += buf.position();
+            buf.compact();
+            while (buf.position() < n && ch.read(buf) > 0) { }
+            buf.flip();
+            return buf.remaining();
+        }
+
+        long position() { return consumedBefore + buf.position(); }
+
+        int varint() throws IOException {
+            return (int) varLong();
+        }
+
+        long varLong() throws IOException {
+            need(10);
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (!buf.hasRemaining()) throw new EOFException("Run log is truncated");
+                byte b = buf.get();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IOException("Corrupt varint in run log");
+        }
+    }
+}
\ No newline at end of file
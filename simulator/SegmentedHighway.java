@@ -0,0 +1,166 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A ring road cut into equal segments, each with its own HighwayCounter and a skip-list index of the vehicles on
+// it ordered by position. A runner's distance is charged to the segments it actually drove through, so runners
+// spread over the road contend on different counters instead of one global cell.
+//
+// Only the runner's own ticking thread moves it; lookups from other threads see each vehicle at its old or new
+// spot (it is added to the new segment before it leaves the old one, so it is never missing). Runners stay on
+// the road for the whole run, and distance is charged to the segments as it is driven, never batched.
+public class SegmentedHighway {
+    // Position on the ring in whole km; serial breaks ties between vehicles at the same km
+    public record Spot(long km, long serial) implements Comparable<Spot> {
+        @Override
+        public int compareTo(Spot o) {
+            int c = Long.compare(km, o.km);
+            return c != 0 ? c : Long.compare(serial, o.serial);
+        }
+    }
+
+    public static final class Segment {
+        private final int index;
+        private final long startKm;
+        private final long endKm;
+        private final HighwayCounter counter = new HighwayCounter();
+        private final ConcurrentSkipListMap<Spot, VehicleRunner> vehicles = new ConcurrentSkipListMap<>();
+        private final AtomicInteger occupancy = new AtomicInteger(); // skip-list size() is O(n)
+
+        private Segment(int index, long startKm, long endKm) {
+            this.index = index;
+            this.startKm = startKm;
+            this.endKm = endKm;
+        }
+
+        public int getIndex() { return index; }
+        public long getStartKm() { return startKm; }
+        public long getEndKm() { return endKm; }
+        public HighwayCounter getCounter() { return counter; }
+        public int getOccupancy() { return occupancy.get(); }
+
+        // Vehicles on this segment from the entry of the road onwards
+        public List<VehicleRunner> getVehicles() { return new ArrayList<>(vehicles.values()); }
+    }
+
+    private final Segment[] segments;
+    private final long segmentKm;
+    private final long lengthKm;
+    private final AtomicLong serials = new AtomicLong();
+
+    public SegmentedHighway(int segments, long segmentKm) {
+        if (segments < 1 || segmentKm < 1) throw new IllegalArgumentException("Need at least one segment of 1 km");
+        this.segmentKm = segmentKm;
+        this.lengthKm = segments * segmentKm;
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) this.segments[i] = new Segment(i, i * segmentKm, (i + 1) * segmentKm);
+    }
+
+    public void setStrategy(SyncStrategy strategy) {
+        for (Segment s : segments) s.counter.setStrategy(strategy);
+    }
+
+    // Puts runners on the road spaced evenly from km 0, so every segment starts with its share of the fleet
+    public void enterAll(List<VehicleRunner> runners) {
+        int n = runners.size();
+        for (int i = 0; i < n; i++) enter(runners.get(i), i * lengthKm / Math.max(1, n));
+    }
+
+    public void enter(VehicleRunner runner, long km) {
+        Spot spot = new Spot(Math.floorMod(km, lengthKm), serials.incrementAndGet());
+        Segment s = segmentAt(spot.km());
+        s.vehicles.put(spot, runner);
+        s.occupancy.incrementAndGet();
+        runner.spot = spot;
+        runner.highway = this;
+    }
+
+    // Moves the runner km forward, charging each segment it passed through with the km driven there
+    void advance(VehicleRunner runner, int km) {
+        Spot from = runner.spot;
+        if (from == null || km <= 0) return;
+        long pos = from.km();
+        long left = km;
+        while (left > 0) {
+            Segment s = segmentAt(pos);
+            long step = Math.min(left, s.endKm - pos);
+            s.counter.add((int) step);
+            left -= step;
+            pos = (pos + step) % lengthKm;
+        }
+        if (pos == from.km()) return; // a whole lap ends on the same spot
+        Spot to = new Spot(pos, from.serial());
+        Segment a = segmentAt(from.km());
+        Segment b = segmentAt(pos);
+        b.vehicles.put(to, runner);
+        runner.spot = to;
+        a.vehicles.remove(from, runner);
+        if (a != b) {
+            b.occupancy.incrementAndGet();
+            a.occupancy.decrementAndGet();
+        }
+    }
+
+    // The next vehicle down the road, wrapping past the last segment; O(log n) per segment looked at
+    public Optional<VehicleRunner> ahead(VehicleRunner runner) {
+        Spot spot = runner.spot;
+        if (spot == null) return Optional.empty();
+        int first = segmentIndex(spot.km());
+        Map.Entry<Spot, VehicleRunner> e = segments[first].vehicles.higherEntry(spot);
+        for (int i = 1; e == null && i <= segments.length; i++) {
+            e = segments[(first + i) % segments.length].vehicles.firstEntry();
+        }
+        return e == null || e.getValue() == runner ? Optional.empty() : Optional.of(e.getValue());
+    }
+
+    // The previous vehicle up the road, wrapping before the first segment
+    public Optional<VehicleRunner> behind(VehicleRunner runner) {
+        Spot spot = runner.spot;
+        if (spot == null) return Optional.empty();
+        int first = segmentIndex(spot.km());
+        Map.Entry<Spot, VehicleRunner> e = segments[first].vehicles.lowerEntry(spot);
+        for (int i = 1; e == null && i <= segments.length; i++) {
+            e = segments[Math.floorMod(first - i, segments.length)].vehicles.lastEntry();
+        }
+        return e == null || e.getValue() == runner ? Optional.empty() : Optional.of(e.getValue());
+    }
+
+    // Position on the ring in km, or -1 when the runner is not on this highway
+    public long positionOf(VehicleRunner runner) {
+        Spot spot = runner.spot;
+        return spot == null || runner.highway != this ? -1 : spot.km();
+    }
+
+    // Fleet-wide distance: the sum of every segment's counter
+    public long total() {
+        long sum = 0;
+        for (Segment s : segments) sum += s.counter.get();
+        return sum;
+    }
+
+    // Per-segment counter values in segment order, for rate sampling
+    public long[] totals() {
+        long[] out = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) out[i] = segments[i].counter.get();
+        return out;
+    }
+
+    public List<Segment> getSegments() { return List.of(segments); }
+    public int getSegmentCount() { return segments.length; }
+    public long getSegmentKm() { return segmentKm; }
+    public long getLengthKm() { return lengthKm; }
+
+    public Segment segmentAt(long km) {
+        return segments[segmentIndex(km)];
+    }
+
+    private int segmentIndex(long km) {
+        return (int) (Math.floorMod(km, lengthKm) / segmentKm);
+    }
+}
\ No newline at end of file
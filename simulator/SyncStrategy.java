@@ -3,5 +3,7 @@ package simulator;
 public enum SyncStrategy {
     NONE,
     SYNCHRONIZED,
-    LOCK
+    LOCK,
+    ATOMIC,
+    STRIPED
 }
\ No newline at end of file
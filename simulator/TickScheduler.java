@@ -0,0 +1,155 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Advances all registered runners at a fixed rate from a work-stealing pool instead of one sleeping thread per vehicle
+public class TickScheduler {
+    private static final int SPLIT_THRESHOLD = 16;
+
+    private final long periodNanos;
+    private final ForkJoinPool pool;
+    private final List<VehicleRunner> all = new ArrayList<>();
+    private final List<VehicleRunner> active = new ArrayList<>();
+    private final ConcurrentLinkedQueue<VehicleRunner> woken = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = false;
+    private volatile long ticks = 0;
+    private volatile long missedTicks = 0;
+    private volatile Thread driver;
+
+    public TickScheduler(long tickMillis) {
+        this(tickMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TickScheduler(long tickMillis, int parallelism) {
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    public synchronized void add(VehicleRunner runner) {
+        if (running) throw new IllegalStateException("Cannot add runners to a started scheduler");
+        runner.setScheduler(this);
+        all.add(runner);
+        woken.add(runner);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        all.forEach(VehicleRunner::open);
+        driver = new Thread(this::drive, "TickSchedulerDriver");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    // Stops ticking, waits for the in-flight tick and flushes every runner's batched distance
+    public void stop() {
+        Thread d;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            d = driver;
+        }
+        LockSupport.unpark(d);
+        try {
+            d.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.shutdown();
+        all.forEach(VehicleRunner::close);
+    }
+
+    public boolean isRunning() { return running; }
+    public int getParallelism() { return pool.getParallelism(); }
+    public long getTicks() { return ticks; }
+    public long getMissedTicks() { return missedTicks; }
+
+    void wake(VehicleRunner runner) {
+        woken.add(runner);
+        Thread d = driver;
+        if (d != null) LockSupport.unpark(d);
+    }
+
+    private void drive() {
+        long start = System.nanoTime();
+        long tick = 0;
+        while (running) {
+            admitWoken();
+            if (!active.isEmpty()) {
+                pool.invoke(new TickTask(active, 0, active.size()));
+                retireInactive();
+            }
+            ticks = ++tick;
+
+            // Deadlines are start + n * period, so a slow tick shortens the next wait instead of shifting every later tick
+            long deadline = start + tick * periodNanos;
+            long now = System.nanoTime();
+            if (now - deadline > periodNanos) {
+                long behind = (now - deadline) / periodNanos;
+                missedTicks += behind;
+                tick += behind;
+                deadline = start + tick * periodNanos;
+            }
+            while (running && (now = System.nanoTime()) < deadline) {
+                if (active.isEmpty() && woken.isEmpty()) {
+                    // Nothing to run; sleep until a runner is woken instead of spinning through empty ticks
+                    LockSupport.park(this);
+                    start = System.nanoTime() - tick * periodNanos;
+                    break;
+                }
+                LockSupport.parkNanos(this, deadline - now);
+            }
+        }
+    }
+
+    private void admitWoken() {
+        VehicleRunner r;
+        while ((r = woken.poll()) != null) {
+            if (!r.scheduled && r.isActive()) {
+                r.scheduled = true;
+                active.add(r);
+            }
+        }
+    }
+
+    private void retireInactive() {
+        active.removeIf(r -> {
+            if (r.isActive()) return false;
+            r.scheduled = false;
+            r.parked();
+            return true;
+        });
+    }
+
+    private static final class TickTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<VehicleRunner> runners;
+        private final int from;
+        private final int to;
+
+        TickTask(List<VehicleRunner> runners, int from, int to) {
+            this.runners = runners;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    VehicleRunner r = runners.get(i);
+                    if (r.isActive()) r.tick();
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TickTask(runners, from, mid), new TickTask(runners, mid, to));
+        }
+    }
+}
\ No newline at end of file
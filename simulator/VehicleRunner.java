@@ -1,9 +1,16 @@
 package simulator;
 
-import exceptions.InsufficientFuelException;
 import exceptions.InvalidOperationException;
 import vehicles.Vehicle;
 import interfaces.FuelConsumable;
+import metrics.FuelExhaustedEvent;
+import metrics.RefuelEvent;
+import metrics.RunnerMetrics;
+import metrics.TickEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class VehicleRunner implements Runnable {
     private final Vehicle vehicle;
@@ -11,51 +18,222 @@ public class VehicleRunner implements Runnable {
     private volatile boolean running = true;
     private volatile boolean paused = false;
     private volatile boolean outOfFuel = false;
+    private final AtomicInteger refuels = new AtomicInteger(); // bumped by refuel() before it clears outOfFuel
     private int localDistance = 0;
     private final long tickMillis;
     private final int incrementsPerTick;
+    private final BatchPolicy batchPolicy;
+    private int pending = 0;
+    private long lastFlushMillis;
+    private volatile Thread parkedThread;
+    private volatile TickScheduler scheduler;
+    boolean scheduled = false; // owned by the TickScheduler driver thread
+    private volatile RunnerMetrics metrics;
+    private long plannedNanos;                  // when the next tick should start, 0 after parking
+    private volatile long outOfFuelSince;       // nanoTime the tank ran dry, 0 when not measured
+    private volatile RunRecorder recorder;
+    private int recordIndex;
+    volatile SegmentedHighway highway;          // set by SegmentedHighway.enter; counts go to its segments instead
+    volatile SegmentedHighway.Spot spot;        // position on the highway, written only by the ticking thread
+    // A j.u.c lock rather than a monitor, so a virtual thread blocking here does not pin its carrier on JDK 17-20
+    private final ReentrantLock lock = new ReentrantLock();
 
     public VehicleRunner(Vehicle vehicle, HighwayCounter counter, long tickMillis) {
-        this.vehicle = vehicle;
-        this.counter = counter;
-        this.tickMillis = tickMillis;
-        this.incrementsPerTick = 1;
+        this(vehicle, counter, tickMillis, 1);
     }
 
     public VehicleRunner(Vehicle vehicle, HighwayCounter counter, long tickMillis, int incrementsPerTick) {
+        this(vehicle, counter, tickMillis, incrementsPerTick, null);
+    }
+
+    // A null batchPolicy keeps the original one-increment-per-kilometre behaviour
+    public VehicleRunner(Vehicle vehicle, HighwayCounter counter, long tickMillis, int incrementsPerTick,
+                         BatchPolicy batchPolicy) {
         this.vehicle = vehicle;
         this.counter = counter;
         this.tickMillis = tickMillis;
         this.incrementsPerTick = Math.max(1, incrementsPerTick);
+        this.batchPolicy = batchPolicy;
     }
 
     @Override
     public void run() {
-        while (running) {
-            if (paused || outOfFuel) {
-                sleep(100);
-                continue;
-            }
-            for (int i = 0; i < incrementsPerTick; i++) {
-                try {
-                    vehicle.move(1);
-                    counter.increment();
-                    localDistance++;
-                } catch (InsufficientFuelException e) {
-                    outOfFuel = true;
-                    break;
-                } catch (InvalidOperationException e) {
-                } catch (Exception e) {
+        open();
+        try {
+            while (running) {
+                if (!isActive()) {
+                    flush();
+                    parkUntilWoken();
+                    continue;
                 }
+                tick();
+                sleep(tickMillis);
             }
-            sleep(tickMillis);
+        } finally {
+            close();
+        }
+    }
+
+    void open() {
+        if (batchPolicy != null) {
+            counter.registerBatcher(batchPolicy, tickMillis);
+            lastFlushMillis = System.currentTimeMillis();
+        }
+    }
+
+    void close() {
+        endOutOfFuel();
+        if (batchPolicy != null) {
+            flush();
+            counter.unregisterBatcher(batchPolicy);
+        }
+    }
+
+    // One tick of work; callers guarantee a runner is never ticked by two threads at once.
+    // The whole tick's distance is covered in one advance() call: no exceptions, no allocation when the tank
+    // runs dry, and the counter still sees one increment per kilometre.
+    void tick() {
+        TickEvent event = new TickEvent();
+        event.begin();
+        RunnerMetrics m = metrics;
+        long start = m == null ? 0 : System.nanoTime();
+        int refuelsBefore = refuels.get();
+        int km = move();
+        SegmentedHighway h = highway;
+        if (h != null) {
+            // Charged per segment as driven; a BatchPolicy does not apply here (the GUI disables Batch with Segments)
+            h.advance(this, km);
+        } else {
+            for (int i = 0; i < km; i++) record();
+        }
+        localDistance += km;
+        if (km < incrementsPerTick) {
+            if (m != null) outOfFuelSince = start;
+            outOfFuel = true;
+            // A refuel() since move() came up short cleared the flag before this write and will not wake the runner
+            // again, so take the flag back instead of parking with fuel in the tank
+            if (refuels.get() != refuelsBefore) {
+                outOfFuel = false;
+                outOfFuelSince = 0;
+            }
+        }
+        if (outOfFuel) {
+            FuelExhaustedEvent dry = new FuelExhaustedEvent();
+            if (dry.shouldCommit()) {
+                dry.vehicle = vehicle.getId();
+                dry.mileage = vehicle.getCurrentMileage();
+                dry.commit();
+            }
+        }
+        if (batchPolicy != null && (outOfFuel || System.currentTimeMillis() - lastFlushMillis >= batchPolicy.maxMillis())) {
+            flush();
+        }
+        if (m != null) {
+            m.tick(plannedNanos == 0 ? -1 : start - plannedNanos, System.nanoTime() - start);
+            plannedNanos = start + tickMillis * 1_000_000L;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.vehicle = vehicle.getId();
+            event.km = km;
+            event.outOfFuel = outOfFuel;
+            event.commit();
+        }
+    }
+
+    // While recording, the move and its log entry happen under the runner's lock so a refuel from another thread
+    // lands in the log on the same side of the move as it did on the vehicle
+    private int move() {
+        RunRecorder rec = recorder;
+        if (rec == null) return (int) vehicle.advance(incrementsPerTick, 1);
+        lock.lock();
+        try {
+            int km = (int) vehicle.advance(incrementsPerTick, 1);
+            rec.move(recordIndex, incrementsPerTick, km);
+            return km;
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void stop() { running = false; }
-    public void pause() { paused = true; }
-    public void resume() { paused = false; }
+    // Called by the TickScheduler when it stops ticking this runner, so batched distance is not held back while parked
+    void parked() {
+        flush();
+        plannedNanos = 0;
+    }
+
+    boolean isActive() { return running && !paused && !outOfFuel; }
+    boolean isRunning() { return running; }
+    void setScheduler(TickScheduler scheduler) { this.scheduler = scheduler; }
+
+    private void parkUntilWoken() {
+        plannedNanos = 0;
+        parkedThread = Thread.currentThread();
+        while (running && (paused || outOfFuel)) {
+            LockSupport.park(this);
+        }
+        parkedThread = null;
+    }
+
+    private void wake() {
+        Thread t = parkedThread;
+        if (t != null) LockSupport.unpark(t);
+        TickScheduler s = scheduler;
+        if (s != null) s.wake(this);
+    }
+
+    private void record() {
+        if (batchPolicy == null) {
+            counter.increment();
+        } else if (++pending >= batchPolicy.maxIncrements()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (pending > 0) {
+            counter.add(pending);
+            pending = 0;
+        }
+        lastFlushMillis = System.currentTimeMillis();
+    }
+
+    private void endOutOfFuel() {
+        lock.lock();
+        try {
+            long since = outOfFuelSince;
+            RunnerMetrics m = metrics;
+            if (since != 0 && m != null) {
+                outOfFuelSince = 0;
+                m.outOfFuel(System.nanoTime() - since);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setRecorder(RunRecorder recorder, int index) {
+        this.recordIndex = index;
+        this.recorder = recorder;
+    }
+
+    public void setMetrics(RunnerMetrics metrics) { this.metrics = metrics; }
+    public void stop() { running = false; wake(); }
+
+    public void pause() {
+        paused = true;
+        RunRecorder rec = recorder;
+        if (rec != null) rec.paused(recordIndex, true);
+    }
+
+    public void resume() {
+        paused = false;
+        RunRecorder rec = recorder;
+        if (rec != null) rec.paused(recordIndex, false);
+        wake();
+    }
     public int getLocalDistance() { return localDistance; }
+    public BatchPolicy getBatchPolicy() { return batchPolicy; }
     public boolean isOutOfFuel() { return outOfFuel; }
     public double getMileage() { return vehicle.getCurrentMileage(); }
     public Vehicle getVehicle() { return vehicle; }
@@ -63,8 +241,29 @@ public class VehicleRunner implements Runnable {
     public void refuel(double amount) {
         if (vehicle instanceof FuelConsumable fc) {
             try {
-                fc.refuel(amount);
+                RunRecorder rec = recorder;
+                if (rec == null) {
+                    fc.refuel(amount);
+                } else {
+                    lock.lock();
+                    try {
+                        fc.refuel(amount);
+                        rec.refuel(recordIndex, amount);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                RefuelEvent event = new RefuelEvent();
+                if (event.shouldCommit()) {
+                    event.vehicle = vehicle.getId();
+                    event.amount = amount;
+                    event.fuelLevel = fc.getFuelLevel();
+                    event.commit();
+                }
+                refuels.incrementAndGet();
+                if (outOfFuel) endOutOfFuel();
                 outOfFuel = false;
+                wake();
             } catch (InvalidOperationException ignored) {
             }
         }
@@ -0,0 +1,101 @@
+package simulator;
+
+import interfaces.FuelConsumable;
+import vehicles.Vehicle;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.List;
+
+// Table model over the live fleet. Cells are read from the vehicles and runners on demand, so JTable only ever
+// touches the rows it paints; refreshVisible() repaints just the visible rows whose mileage or fuel moved.
+class VehicleTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Type", "ID", "Model", "Mileage (km)", "Fuel", "Status"};
+    static final int MILEAGE = 3;
+    static final int FUEL = 4;
+    static final int STATUS = 5;
+    private static final String[] STATUS_TEXT = {"", "running", "paused", "out of fuel"};
+
+    private final List<Vehicle> fleet;
+    private List<VehicleRunner> runners = List.of(); // row i runs fleet.get(i) once started
+    // What each row showed when it was last painted: whole km, tenths of a litre and status, -1 when never painted
+    private final long[] shownMileage;
+    private final long[] shownFuel;
+    private final byte[] shownStatus;
+
+    VehicleTableModel(List<Vehicle> fleet) {
+        this.fleet = fleet;
+        this.shownMileage = new long[fleet.size()];
+        this.shownFuel = new long[fleet.size()];
+        this.shownStatus = new byte[fleet.size()];
+        Arrays.fill(shownMileage, -1);
+        Arrays.fill(shownFuel, -1);
+        Arrays.fill(shownStatus, (byte) -1);
+    }
+
+    void setRunners(List<VehicleRunner> runners) {
+        this.runners = runners;
+        fireTableDataChanged();
+    }
+
+    VehicleRunner runnerAt(int row) {
+        return row < runners.size() ? runners.get(row) : null;
+    }
+
+    // Fires one rowsUpdated event per run of consecutive changed rows in [first, last]
+    void refreshVisible(int first, int last) {
+        int runStart = -1;
+        for (int row = first; row <= last; row++) {
+            boolean changed = mileageKm(row) != shownMileage[row] || fuelTenths(row) != shownFuel[row]
+                    || status(row) != shownStatus[row];
+            if (changed && runStart < 0) {
+                runStart = row;
+            } else if (!changed && runStart >= 0) {
+                fireTableRowsUpdated(runStart, row - 1);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) fireTableRowsUpdated(runStart, last);
+    }
+
+    @Override public int getRowCount() { return fleet.size(); }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == MILEAGE ? Long.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Vehicle v = fleet.get(row);
+        return switch (column) {
+            case 0 -> v.getClass().getSimpleName();
+            case 1 -> v.getId();
+            case 2 -> v.getModel();
+            case MILEAGE -> shownMileage[row] = mileageKm(row);
+            case FUEL -> {
+                if (!(v instanceof FuelConsumable)) yield "(No Fuel Engine)";
+                long tenths = shownFuel[row] = fuelTenths(row);
+                yield tenths / 10 + "." + tenths % 10;
+            }
+            default -> STATUS_TEXT[shownStatus[row] = status(row)];
+        };
+    }
+
+    private long mileageKm(int row) {
+        return (long) fleet.get(row).getCurrentMileage();
+    }
+
+    private byte status(int row) {
+        VehicleRunner r = runnerAt(row);
+        if (r == null || !r.isRunning()) return 0;
+        return r.isOutOfFuel() ? (byte) 3 : r.isActive() ? (byte) 1 : (byte) 2;
+    }
+
+    private long fuelTenths(int row) {
+        return fleet.get(row) instanceof FuelConsumable fc ? (long) (fc.getFuelLevel() * 10) : 0;
+    }
+}
\ No newline at end of file
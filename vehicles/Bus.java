@@ -6,15 +6,16 @@ import exceptions.OverloadException;
 import interfaces.CargoCarrier;
 import interfaces.FuelConsumable;
 import interfaces.Maintainable;
+import interfaces.MaintenanceResult;
 import interfaces.PassengerCarrier;
 
 public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier, CargoCarrier, Maintainable {
-    private double fuelLevel = 0;
     private final int passengerCapacity = 50;
     private int currentPassengers = 0;
     private final double cargoCapacity = 500;
     private double currentCargo = 0;
-    private boolean maintenanceNeeded = false;
+    private volatile boolean maintenanceNeeded = false;
+    private volatile double nextServiceKm = SERVICE_INTERVAL_KM;
 
     public Bus(String id, String model, double maxSpeed, double currentMileage, int numWheels)
             throws InvalidOperationException {
@@ -24,30 +25,32 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
     @Override
     public void move(double distance) throws InvalidOperationException, InsufficientFuelException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
-        double needed = distance / calculateFuelEfficiency();
-        if (needed > fuelLevel) throw new InsufficientFuelException("Not enough fuel in bus " + getId());
-        fuelLevel -= needed;
-        addMileage(distance);
+        if (tryMove(distance) == MoveStatus.OUT_OF_FUEL)
+            throw new InsufficientFuelException("Not enough fuel in bus " + getId());
     }
 
+    @Override
+    protected double fuelPerKm() { return 1 / calculateFuelEfficiency(); }
+
     @Override
     public double calculateFuelEfficiency() { return 10.0; }
 
     @Override
     public void refuel(double amount) throws InvalidOperationException {
         if (amount <= 0) throw new InvalidOperationException("Refuel amount must be positive");
-        fuelLevel += amount;
+        if (!addFuel(amount)) throw new InvalidOperationException("Refuel amount too large");
+        notifyStateChanged();
     }
 
     @Override
-    public double getFuelLevel() { return fuelLevel; }
+    public double getFuelLevel() { return fuelLevel(); }
 
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException, InvalidOperationException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
         double needed = distance / calculateFuelEfficiency();
-        if (needed > fuelLevel) throw new InsufficientFuelException("Not enough fuel in bus " + getId());
-        fuelLevel -= needed;
+        if (!tryConsumeFuel(needed)) throw new InsufficientFuelException("Not enough fuel in bus " + getId());
+        notifyStateChanged();
         return needed;
     }
 
@@ -56,12 +59,14 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
         if (count <= 0) throw new InvalidOperationException("Passenger count must be positive");
         if (currentPassengers + count > passengerCapacity) throw new OverloadException("Bus over capacity");
         currentPassengers += count;
+        notifyStateChanged();
     }
 
     @Override
     public void disembarkPassengers(int count) throws InvalidOperationException {
         if (count <= 0 || count > currentPassengers) throw new InvalidOperationException("Invalid disembark count");
         currentPassengers -= count;
+        notifyStateChanged();
     }
 
     @Override
@@ -74,12 +79,14 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
         if (weight <= 0) throw new InvalidOperationException("Weight must be positive");
         if (currentCargo + weight > cargoCapacity) throw new OverloadException("Bus cargo over capacity");
         currentCargo += weight;
+        notifyStateChanged();
     }
 
     @Override
     public void unloadCargo(double weight) throws InvalidOperationException {
         if (weight <= 0 || weight > currentCargo) throw new InvalidOperationException("Invalid unload weight");
         currentCargo -= weight;
+        notifyStateChanged();
     }
 
     @Override
@@ -88,13 +95,23 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
     public double getCurrentCargo() { return currentCargo; }
 
     @Override
-    public void scheduleMaintenance() { maintenanceNeeded = true; }
+    public void scheduleMaintenance() { maintenanceNeeded = true; notifyStateChanged(); }
+    @Override
+    public boolean isMaintenanceScheduled() { return maintenanceNeeded; }
+    @Override
+    public boolean needsMaintenance() { return getCurrentMileage() > nextServiceKm || maintenanceNeeded; }
+    @Override
+    public double getNextServiceMileage() { return nextServiceKm; }
     @Override
-    public boolean needsMaintenance() { return getCurrentMileage() > 10000 || maintenanceNeeded; }
+    public void setNextServiceMileage(double km) { nextServiceKm = km; notifyStateChanged(); }
     @Override
-    public void performMaintenance() {
+    public MaintenanceResult performMaintenance() {
+        boolean scheduled = maintenanceNeeded;
+        double mileage = getCurrentMileage();
         maintenanceNeeded = false;
-        System.out.println("Bus " + getId() + " maintenance performed.");
+        nextServiceKm = mileage + SERVICE_INTERVAL_KM;
+        notifyStateChanged();
+        return new MaintenanceResult(getId(), "Bus", mileage, scheduled);
     }
 
     @Override
@@ -102,8 +119,9 @@ public class Bus extends LandVehicle implements FuelConsumable, PassengerCarrier
         return String.join(",",
                 "Bus", getId(), getModel(), String.valueOf(getMaxSpeed()),
                 String.valueOf(getCurrentMileage()), String.valueOf(getNumWheels()),
-                String.valueOf(fuelLevel), String.valueOf(passengerCapacity),
+                String.valueOf(fuelLevel()), String.valueOf(passengerCapacity),
                 String.valueOf(currentPassengers), String.valueOf(cargoCapacity),
-                String.valueOf(currentCargo), String.valueOf(needsMaintenance()));
+                String.valueOf(currentCargo), String.valueOf(needsMaintenance()),
+                String.valueOf(nextServiceKm));
     }
 }
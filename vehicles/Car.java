@@ -4,47 +4,49 @@ import exceptions.InsufficientFuelException;
 import exceptions.InvalidOperationException;
 import interfaces.FuelConsumable;
 import interfaces.Maintainable;
+import interfaces.MaintenanceResult;
 import interfaces.PassengerCarrier;
 
 public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier, Maintainable {
-    private double fuelLevel;
     private final int passengerCapacity = 5;
     private int currentPassengers = 0;
-    private boolean maintenanceNeeded = false;
+    private volatile boolean maintenanceNeeded = false;
+    private volatile double nextServiceKm = SERVICE_INTERVAL_KM;
 
     public Car(String id, String model, double maxSpeed, double currentMileage, int numWheels)
             throws InvalidOperationException {
         super(id, model, maxSpeed, currentMileage, numWheels);
-        this.fuelLevel = 0;
     }
 
     @Override
     public void move(double distance) throws InvalidOperationException, InsufficientFuelException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
-        double needed = distance / calculateFuelEfficiency();
-        if (needed > fuelLevel) throw new InsufficientFuelException("Not enough fuel in car " + getId());
-        fuelLevel -= needed;
-        addMileage(distance);
+        if (tryMove(distance) == MoveStatus.OUT_OF_FUEL)
+            throw new InsufficientFuelException("Not enough fuel in car " + getId());
     }
 
+    @Override
+    protected double fuelPerKm() { return 1 / calculateFuelEfficiency(); }
+
     @Override
     public double calculateFuelEfficiency() { return 15.0; }
 
     @Override
     public void refuel(double amount) throws InvalidOperationException {
         if (amount <= 0) throw new InvalidOperationException("Refuel amount must be positive");
-        fuelLevel += amount;
+        if (!addFuel(amount)) throw new InvalidOperationException("Refuel amount too large");
+        notifyStateChanged();
     }
 
     @Override
-    public double getFuelLevel() { return fuelLevel; }
+    public double getFuelLevel() { return fuelLevel(); }
 
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException, InvalidOperationException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
         double needed = distance / calculateFuelEfficiency();
-        if (needed > fuelLevel) throw new InsufficientFuelException("Not enough fuel in car " + getId());
-        fuelLevel -= needed;
+        if (!tryConsumeFuel(needed)) throw new InsufficientFuelException("Not enough fuel in car " + getId());
+        notifyStateChanged();
         return needed;
     }
 
@@ -54,12 +56,14 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
         if (currentPassengers + count > passengerCapacity)
             throw new InvalidOperationException("Over capacity");
         currentPassengers += count;
+        notifyStateChanged();
     }
 
     @Override
     public void disembarkPassengers(int count) throws InvalidOperationException {
         if (count <= 0 || count > currentPassengers) throw new InvalidOperationException("Invalid disembark count");
         currentPassengers -= count;
+        notifyStateChanged();
     }
 
     @Override
@@ -68,13 +72,23 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
     public int getCurrentPassengers() { return currentPassengers; }
 
     @Override
-    public void scheduleMaintenance() { maintenanceNeeded = true; }
+    public void scheduleMaintenance() { maintenanceNeeded = true; notifyStateChanged(); }
+    @Override
+    public boolean isMaintenanceScheduled() { return maintenanceNeeded; }
+    @Override
+    public boolean needsMaintenance() { return getCurrentMileage() > nextServiceKm || maintenanceNeeded; }
+    @Override
+    public double getNextServiceMileage() { return nextServiceKm; }
     @Override
-    public boolean needsMaintenance() { return getCurrentMileage() > 10000 || maintenanceNeeded; }
+    public void setNextServiceMileage(double km) { nextServiceKm = km; notifyStateChanged(); }
     @Override
-    public void performMaintenance() {
+    public MaintenanceResult performMaintenance() {
+        boolean scheduled = maintenanceNeeded;
+        double mileage = getCurrentMileage();
         maintenanceNeeded = false;
-        System.out.println("Car " + getId() + " maintenance performed.");
+        nextServiceKm = mileage + SERVICE_INTERVAL_KM;
+        notifyStateChanged();
+        return new MaintenanceResult(getId(), "Car", mileage, scheduled);
     }
 
     @Override
@@ -82,7 +96,8 @@ public class Car extends LandVehicle implements FuelConsumable, PassengerCarrier
         return String.join(",",
                 "Car", getId(), getModel(), String.valueOf(getMaxSpeed()),
                 String.valueOf(getCurrentMileage()), String.valueOf(getNumWheels()),
-                String.valueOf(fuelLevel), String.valueOf(passengerCapacity),
-                String.valueOf(currentPassengers), String.valueOf(needsMaintenance()));
+                String.valueOf(fuelLevel()), String.valueOf(passengerCapacity),
+                String.valueOf(currentPassengers), String.valueOf(needsMaintenance()),
+                String.valueOf(nextServiceKm));
     }
 }
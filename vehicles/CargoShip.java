@@ -4,14 +4,15 @@ import exceptions.InvalidOperationException;
 import exceptions.OverloadException;
 import interfaces.CargoCarrier;
 import interfaces.Maintainable;
+import interfaces.MaintenanceResult;
 
 import interfaces.FuelConsumable;
 
 public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainable, FuelConsumable {
     private final double cargoCapacity = 50000;
     private double currentCargo = 0;
-    private boolean maintenanceNeeded = false;
-    private double fuelLevel = 0;
+    private volatile boolean maintenanceNeeded = false;
+    private volatile double nextServiceKm = SERVICE_INTERVAL_KM;
 
     public CargoShip(String id, String model, double maxSpeed, double currentMileage, boolean hasSail)
             throws InvalidOperationException {
@@ -22,19 +23,15 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
     public void move(double distance) throws InvalidOperationException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
         
-        // Consume fuel if not sailing
-        if (!isHasSail()) {
-             try {
-                 consumeFuel(distance);
-             } catch (exceptions.InsufficientFuelException e) {
-                 System.out.println("CargoShip " + getId() + " out of fuel!");
-                 return; // Stop moving
-             }
+        // Sailing ships burn no fuel (fuelPerKm is 0)
+        if (tryMove(distance) == MoveStatus.OUT_OF_FUEL) {
+            System.out.println("CargoShip " + getId() + " out of fuel!");
         }
-        
-        addMileage(distance);
     }
 
+    @Override
+    protected double fuelPerKm() { return isHasSail() ? 0 : 1 / calculateFuelEfficiency(); }
+
     @Override
     public double calculateFuelEfficiency() {
         return isHasSail() ? 0.0 : 4.0;
@@ -43,12 +40,13 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
     @Override
     public void refuel(double amount) throws InvalidOperationException {
         if (amount <= 0) throw new InvalidOperationException("Refuel amount must be positive");
-        fuelLevel += amount;
+        if (!addFuel(amount)) throw new InvalidOperationException("Refuel amount too large");
+        notifyStateChanged();
     }
 
     @Override
     public double getFuelLevel() {
-        return fuelLevel;
+        return fuelLevel();
     }
 
     @Override
@@ -57,8 +55,8 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
         if (isHasSail()) return 0; // Sails don't consume fuel
         
         double needed = distance / calculateFuelEfficiency();
-        if (needed > fuelLevel) throw new exceptions.InsufficientFuelException("Not enough fuel in CargoShip " + getId());
-        fuelLevel -= needed;
+        if (!tryConsumeFuel(needed)) throw new exceptions.InsufficientFuelException("Not enough fuel in CargoShip " + getId());
+        notifyStateChanged();
         return needed;
     }
 
@@ -67,12 +65,14 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
         if (weight <= 0) throw new InvalidOperationException("Weight must be positive");
         if (currentCargo + weight > cargoCapacity) throw new OverloadException("Ship cargo over capacity");
         currentCargo += weight;
+        notifyStateChanged();
     }
 
     @Override
     public void unloadCargo(double weight) throws InvalidOperationException {
         if (weight <= 0 || weight > currentCargo) throw new InvalidOperationException("Invalid unload weight");
         currentCargo -= weight;
+        notifyStateChanged();
     }
 
     @Override
@@ -81,13 +81,23 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
     public double getCurrentCargo() { return currentCargo; }
 
     @Override
-    public void scheduleMaintenance() { maintenanceNeeded = true; }
+    public void scheduleMaintenance() { maintenanceNeeded = true; notifyStateChanged(); }
+    @Override
+    public boolean isMaintenanceScheduled() { return maintenanceNeeded; }
+    @Override
+    public boolean needsMaintenance() { return getCurrentMileage() > nextServiceKm || maintenanceNeeded; }
+    @Override
+    public double getNextServiceMileage() { return nextServiceKm; }
     @Override
-    public boolean needsMaintenance() { return getCurrentMileage() > 10000 || maintenanceNeeded; }
+    public void setNextServiceMileage(double km) { nextServiceKm = km; notifyStateChanged(); }
     @Override
-    public void performMaintenance() {
+    public MaintenanceResult performMaintenance() {
+        boolean scheduled = maintenanceNeeded;
+        double mileage = getCurrentMileage();
         maintenanceNeeded = false;
-        System.out.println("CargoShip " + getId() + " maintenance performed.");
+        nextServiceKm = mileage + SERVICE_INTERVAL_KM;
+        notifyStateChanged();
+        return new MaintenanceResult(getId(), "CargoShip", mileage, scheduled);
     }
 
     @Override
@@ -96,6 +106,7 @@ public class CargoShip extends WaterVehicle implements CargoCarrier, Maintainabl
                 "CargoShip", getId(), getModel(), String.valueOf(getMaxSpeed()),
                 String.valueOf(getCurrentMileage()), String.valueOf(isHasSail()),
                 String.valueOf(cargoCapacity), String.valueOf(currentCargo),
-                String.valueOf(needsMaintenance()), String.valueOf(fuelLevel));
+                String.valueOf(needsMaintenance()), String.valueOf(fuelLevel()),
+                String.valueOf(nextServiceKm));
     }
 }
@@ -0,0 +1,8 @@
+package vehicles;
+
+// Outcome of Vehicle.tryMove, returned instead of throwing on the simulator hot path
+public enum MoveStatus {
+    MOVED,
+    OUT_OF_FUEL,
+    INVALID_DISTANCE
+}
\ No newline at end of file
@@ -6,12 +6,13 @@ import exceptions.OverloadException;
 import interfaces.CargoCarrier;
 import interfaces.FuelConsumable;
 import interfaces.Maintainable;
+import interfaces.MaintenanceResult;
 
 public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier, Maintainable {
-    private double fuelLevel = 0;
     private final double cargoCapacity = 5000; // kg
     private double currentCargo = 0;
-    private boolean maintenanceNeeded = false;
+    private volatile boolean maintenanceNeeded = false;
+    private volatile double nextServiceKm = SERVICE_INTERVAL_KM;
 
     public Truck(String id, String model, double maxSpeed, double currentMileage, int numWheels)
             throws InvalidOperationException {
@@ -21,12 +22,15 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
     @Override
     public void move(double distance) throws InvalidOperationException, InsufficientFuelException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
+        if (tryMove(distance) == MoveStatus.OUT_OF_FUEL)
+            throw new InsufficientFuelException("Not enough fuel in truck " + getId());
+    }
+
+    @Override
+    protected double fuelPerKm() {
         double eff = calculateFuelEfficiency();
         if (currentCargo > 0.5 * cargoCapacity) eff *= 0.9; // reduce efficiency
-        double needed = distance / eff;
-        if (needed > fuelLevel) throw new InsufficientFuelException("Not enough fuel in truck " + getId());
-        fuelLevel -= needed;
-        addMileage(distance);
+        return 1 / eff;
     }
 
     @Override
@@ -35,20 +39,19 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
     @Override
     public void refuel(double amount) throws InvalidOperationException {
         if (amount <= 0) throw new InvalidOperationException("Refuel amount must be positive");
-        fuelLevel += amount;
+        if (!addFuel(amount)) throw new InvalidOperationException("Refuel amount too large");
+        notifyStateChanged();
     }
 
     @Override
-    public double getFuelLevel() { return fuelLevel; }
+    public double getFuelLevel() { return fuelLevel(); }
 
     @Override
     public double consumeFuel(double distance) throws InsufficientFuelException, InvalidOperationException {
         if (distance < 0) throw new InvalidOperationException("Distance cannot be negative");
-        double eff = calculateFuelEfficiency();
-        if (currentCargo > 0.5 * cargoCapacity) eff *= 0.9;
-        double needed = distance / eff;
-        if (needed > fuelLevel) throw new InsufficientFuelException("Not enough fuel in truck " + getId());
-        fuelLevel -= needed;
+        double needed = distance * fuelPerKm();
+        if (!tryConsumeFuel(needed)) throw new InsufficientFuelException("Not enough fuel in truck " + getId());
+        notifyStateChanged();
         return needed;
     }
 
@@ -57,12 +60,14 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         if (weight <= 0) throw new InvalidOperationException("Weight must be positive");
         if (currentCargo + weight > cargoCapacity) throw new OverloadException("Truck over capacity");
         currentCargo += weight;
+        notifyStateChanged();
     }
 
     @Override
     public void unloadCargo(double weight) throws InvalidOperationException {
         if (weight <= 0 || weight > currentCargo) throw new InvalidOperationException("Invalid unload weight");
         currentCargo -= weight;
+        notifyStateChanged();
     }
 
     @Override
@@ -71,13 +76,23 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
     public double getCurrentCargo() { return currentCargo; }
 
     @Override
-    public void scheduleMaintenance() { maintenanceNeeded = true; }
+    public void scheduleMaintenance() { maintenanceNeeded = true; notifyStateChanged(); }
+    @Override
+    public boolean isMaintenanceScheduled() { return maintenanceNeeded; }
+    @Override
+    public boolean needsMaintenance() { return getCurrentMileage() > nextServiceKm || maintenanceNeeded; }
+    @Override
+    public double getNextServiceMileage() { return nextServiceKm; }
     @Override
-    public boolean needsMaintenance() { return getCurrentMileage() > 10000 || maintenanceNeeded; }
+    public void setNextServiceMileage(double km) { nextServiceKm = km; notifyStateChanged(); }
     @Override
-    public void performMaintenance() {
+    public MaintenanceResult performMaintenance() {
+        boolean scheduled = maintenanceNeeded;
+        double mileage = getCurrentMileage();
         maintenanceNeeded = false;
-        System.out.println("Truck " + getId() + " maintenance performed.");
+        nextServiceKm = mileage + SERVICE_INTERVAL_KM;
+        notifyStateChanged();
+        return new MaintenanceResult(getId(), "Truck", mileage, scheduled);
     }
 
     @Override
@@ -85,7 +100,8 @@ public class Truck extends LandVehicle implements FuelConsumable, CargoCarrier,
         return String.join(",",
                 "Truck", getId(), getModel(), String.valueOf(getMaxSpeed()),
                 String.valueOf(getCurrentMileage()), String.valueOf(getNumWheels()),
-                String.valueOf(fuelLevel), String.valueOf(cargoCapacity),
-                String.valueOf(currentCargo), String.valueOf(needsMaintenance()));
+                String.valueOf(fuelLevel()), String.valueOf(cargoCapacity),
+                String.valueOf(currentCargo), String.valueOf(needsMaintenance()),
+                String.valueOf(nextServiceKm));
     }
 }
@@ -1,12 +1,41 @@
 package vehicles;
 
 import exceptions.InvalidOperationException;
+import interfaces.VehicleListener;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 
 public abstract class Vehicle implements Comparable<Vehicle> {
+    // Mileage and fuel are fixed-point (micro-km, micro-litres) longs updated with VarHandle atomics, so runner
+    // threads moving a vehicle and the Swing thread refuelling it never lose an update or see a torn value
+    private static final double SCALE = 1_000_000.0;
+    private static final VarHandle MILEAGE;
+    private static final VarHandle FUEL;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            MILEAGE = l.findVarHandle(Vehicle.class, "mileageMicros", long.class);
+            FUEL = l.findVarHandle(Vehicle.class, "fuelMicros", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    // Bits 55-62 of mileageMicros carry the listener epoch. Attach/detach publish a new listener set and then
+    // bump the epoch with a CAS, so every move's CAS lands either before the returned baseline (and is notified
+    // to the old set) or after it (and is notified to the new set) - never both, never neither
+    private static final int EPOCH_SHIFT = 55;
+    private static final long KM_MASK = (1L << EPOCH_SHIFT) - 1;
+
+    private record Listeners(long epoch, VehicleListener[] array) {}
+
     private final String id;
     private final String model;
     private final double maxSpeed;
-    private double currentMileage;
+    private volatile long mileageMicros;
+    private volatile long fuelMicros;
+    private volatile Listeners listeners = new Listeners(0, new VehicleListener[0]);
 
     protected Vehicle(String id, String model, double maxSpeed, double currentMileage) throws InvalidOperationException {
         if (id == null || id.isBlank()) throw new InvalidOperationException("Vehicle ID cannot be empty");
@@ -14,21 +43,169 @@ public abstract class Vehicle implements Comparable<Vehicle> {
         this.id = id;
         this.model = model;
         this.maxSpeed = maxSpeed;
-        this.currentMileage = Math.max(0, currentMileage);
+        this.mileageMicros = Math.min(toMicros(Math.max(0, currentMileage)), KM_MASK);
     }
 
     public String getId() { return id; }
     public String getModel() { return model; }
     public double getMaxSpeed() { return maxSpeed; }
-    public double getCurrentMileage() { return currentMileage; }
+    public double getCurrentMileage() { return (mileageMicros & KM_MASK) / SCALE; }
+
+    protected void addMileage(double distance) {
+        long delta = toMicros(Math.max(0, distance));
+        if (delta == 0) return;
+        for (;;) {
+            Listeners ls = listeners;
+            long cur = mileageMicros;
+            // Epoch mismatch: a listener change is between publishing and its CAS
+            if ((cur & ~KM_MASK) != ls.epoch) { Thread.onSpinWait(); continue; }
+            long next = Math.min((cur & KM_MASK) + delta, KM_MASK) | ls.epoch;
+            if (MILEAGE.compareAndSet(this, cur, next)) {
+                notifyMileage(ls, ((next & KM_MASK) - (cur & KM_MASK)) / SCALE);
+                return;
+            }
+        }
+    }
+
+    public void resetMileage() {
+        for (;;) {
+            Listeners ls = listeners;
+            long cur = mileageMicros;
+            if ((cur & ~KM_MASK) != ls.epoch) { Thread.onSpinWait(); continue; }
+            if (MILEAGE.compareAndSet(this, cur, ls.epoch)) {
+                if ((cur & KM_MASK) != 0) notifyMileage(ls, -(cur & KM_MASK) / SCALE);
+                return;
+            }
+        }
+    }
+
+    // Fuel ledger shared by the FuelConsumable subclasses
+    protected double fuelLevel() { return fuelMicros / SCALE; }
+
+    // Returns false instead of overflowing the ledger
+    protected boolean addFuel(double amount) {
+        long add = toMicros(amount);
+        long cur;
+        do {
+            cur = fuelMicros;
+            if (cur > Long.MAX_VALUE - add) return false;
+        } while (!FUEL.compareAndSet(this, cur, cur + add));
+        return true;
+    }
+
+    // Check-and-debit as one CAS: either the whole amount is taken or nothing is
+    protected boolean tryConsumeFuel(double amount) {
+        long need = toMicros(amount);
+        long cur;
+        do {
+            cur = fuelMicros;
+            if (need > cur) return false;
+        } while (!FUEL.compareAndSet(this, cur, cur - need));
+        return true;
+    }
+
+    // Fuel burned per km; 0 for vehicles that move without drawing on the ledger
+    protected double fuelPerKm() { return 0; }
+
+    // Non-throwing move: all of distance or nothing, with the fuel check-and-debit as one CAS
+    public final MoveStatus tryMove(double distance) {
+        if (!(distance >= 0)) return MoveStatus.INVALID_DISTANCE;
+        double perKm = fuelPerKm();
+        if (perKm > 0 && !tryConsumeFuel(distance * perKm)) return MoveStatus.OUT_OF_FUEL;
+        addMileage(distance);
+        return MoveStatus.MOVED;
+    }
+
+    // Covers as much of distance as the fuel allows, in whole multiples of step (any amount when step <= 0),
+    // and returns the distance covered. A shortfall means the tank is dry for the next step. Never throws
+    // and never allocates, so a vehicle running out of fuel costs nothing on the runner threads.
+    public final double advance(double distance, double step) {
+        if (!(distance > 0)) return 0;
+        double perKm = fuelPerKm();
+        double covered = perKm > 0 ? drawFuel(distance, perKm, step) : distance;
+        if (covered > 0) addMileage(covered);
+        return covered;
+    }
+
+    public final double advance(double distance) { return advance(distance, 0); }
 
-    protected void addMileage(double distance) { this.currentMileage += Math.max(0, distance); }
-    
-    public void resetMileage() { this.currentMileage = 0; }
+    // Closed form: the whole distance if affordable, otherwise the most the ledger pays for, debited in one CAS
+    private double drawFuel(double distance, double perKm, double step) {
+        long want = toMicros(distance * perKm);
+        long cur;
+        long take;
+        double covered;
+        do {
+            cur = fuelMicros;
+            if (want <= cur) {
+                take = want;
+                covered = distance;
+            } else {
+                double reach = cur / SCALE / perKm;
+                covered = step > 0 ? Math.floor(reach / step) * step : reach;
+                take = Math.min(cur, toMicros(covered * perKm));
+            }
+            if (take == 0) return covered;
+        } while (!FUEL.compareAndSet(this, cur, cur - take));
+        return covered;
+    }
+
+    private static long toMicros(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    // Listeners are kept in a copy-on-write array so the move path only does a volatile read
+    public void addListener(VehicleListener l) { attachListener(l); }
+
+    public void removeListener(VehicleListener l) { detachListener(l); }
+
+    // Attaches l and returns the mileage it has not been notified of: moves before the baseline are in it, moves
+    // after it are delivered to l
+    public synchronized double attachListener(VehicleListener l) {
+        VehicleListener[] current = listeners.array;
+        VehicleListener[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = l;
+        return publish(next);
+    }
+
+    // Detaches l and returns the mileage as of its last notification; a move notified to l after this returns
+    // is already counted in the result
+    public synchronized double detachListener(VehicleListener l) {
+        VehicleListener[] current = listeners.array;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == l) {
+                VehicleListener[] next = new VehicleListener[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                return publish(next);
+            }
+        }
+        return getCurrentMileage();
+    }
+
+    // Caller holds the monitor, so epochs advance one listener change at a time
+    private double publish(VehicleListener[] array) {
+        long epoch = (((listeners.epoch >>> EPOCH_SHIFT) + 1) & 0xFF) << EPOCH_SHIFT;
+        listeners = new Listeners(epoch, array);
+        long cur;
+        do {
+            cur = mileageMicros;
+        } while (!MILEAGE.compareAndSet(this, cur, (cur & KM_MASK) | epoch));
+        return (cur & KM_MASK) / SCALE;
+    }
+
+    private void notifyMileage(Listeners ls, double delta) {
+        for (VehicleListener l : ls.array) l.mileageChanged(this, delta);
+    }
+
+    // Subclasses call this after changing fuel, load or maintenance state
+    protected void notifyStateChanged() {
+        for (VehicleListener l : listeners.array) l.stateChanged(this);
+    }
 
     public void displayInfo() {
         System.out.printf("[%s] id=%s, model=%s, maxSpeed=%.1f km/h, mileage=%.1f km%n",
-                getClass().getSimpleName(), id, model, maxSpeed, currentMileage);
+                getClass().getSimpleName(), id, model, maxSpeed, getCurrentMileage());
     }
 
     public abstract void move(double distance) throws InvalidOperationException, Exception;